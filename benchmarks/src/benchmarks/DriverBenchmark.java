@@ -0,0 +1,170 @@
+package benchmarks;
+
+import core_algorithms.KillerHistoryOrdering;
+import core_algorithms.MinimaxPrune;
+import core_algorithms.SearchStats;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import problems.ConnectFour;
+import problems.HashedGame;
+import problems.MNKGame;
+import problems.Square;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the root drivers of MinimaxPrune (full window, aspiration
+ * windows, MTD(f)) node for node on the same positions.
+ *
+ * The game is played once from the start, both sides choosing the move of
+ * the full-window search. Every operation replays that game with one search
+ * per side and driver, searching every position to the same depth. Each
+ * search keeps its own transposition table and its last result across the
+ * game, as it would in a runner, so the drivers start from the score of the
+ * previous move.
+ *
+ * Reports the time per game and, as secondary results, the nodes searched
+ * and the root re-searches per game. The scores of a driver can differ from
+ * the full window only when a table entry of a deeper search decides a
+ * position; the benchmark fails if more than a few do.
+ * Node counts need search statistics, which are on unless -Dsearch.stats=false.
+ *
+ * Run with: gradle :benchmarks:jmh -Pjmh=DriverBenchmark
+ */
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(1)
+public class DriverBenchmark {
+
+    private static final int CONNECT_FOUR_DEPTH = 10;
+    private static final int GOMOKU_DEPTH = 4;
+    private static final int PLIES = 20;
+
+    /**
+     * The played game, with the full-window score of every position.
+     */
+    @State(Scope.Benchmark)
+    public static class PlayedGame {
+        @Param({"connectfour", "gomoku"})
+        public String game;
+        @Param({"full", "aspiration", "mtdf"})
+        public String driver;
+        @Param({"" + MinimaxPrune.DEFAULT_ASPIRATION_WINDOW})
+        public int window;
+
+        HashedGame<Square> start;
+        int depth;
+        final List<Square> moves = new ArrayList<>();
+        final List<Integer> scores = new ArrayList<>();
+        int mismatches;
+        int games;
+
+        @Setup(Level.Trial)
+        public void setUp() {
+            if (!SearchStats.ENABLED) {
+                throw new IllegalStateException("Search statistics are off; run without -Dsearch.stats=false");
+            }
+            start = newGame(game);
+            depth = game.equals("gomoku") ? GOMOKU_DEPTH : CONNECT_FOUR_DEPTH;
+            // the line of play and the scores to compare with, from the full-window searches
+            HashedGame<Square> copy = copy(start);
+            MinimaxPrune<Square> max = newSearch(copy, MinimaxPrune.Driver.FULL_WINDOW, window);
+            MinimaxPrune<Square> min = newSearch(copy, MinimaxPrune.Driver.FULL_WINDOW, window);
+            boolean isMax = true;
+            while (moves.size() < PLIES && !copy.isTerminal()) {
+                MinimaxPrune<Square> search = isMax ? max : min;
+                Square move = search.minimaxSearch(depth, isMax);
+                moves.add(move);
+                scores.add(search.getLastResult().score());
+                copy.execute(move, isMax);
+                isMax = !isMax;
+            }
+        }
+
+        @TearDown(Level.Trial)
+        public void checkScores() {
+            int positions = moves.size() * games;
+            if (mismatches > positions / 10) {
+                throw new IllegalStateException(game + ": " + driver + " changed the score of "
+                        + mismatches + " of " + positions + " positions");
+            }
+        }
+    }
+
+    /**
+     * Nodes and root re-searches of one operation, i.e. one game.
+     */
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class Counters {
+        public long nodes;
+        public long researches;
+
+        @Setup(Level.Iteration)
+        public void reset() {
+            nodes = 0;
+            researches = 0;
+        }
+    }
+
+    @Benchmark
+    public int replay(PlayedGame played, Counters counters) {
+        MinimaxPrune.Driver driver = MinimaxPrune.Driver.parse(played.driver);
+        HashedGame<Square> game = copy(played.start);
+        // one search per side, whose last result is the score of that side's previous move
+        MinimaxPrune<Square> max = newSearch(game, driver, played.window);
+        MinimaxPrune<Square> min = newSearch(game, driver, played.window);
+        boolean isMax = true;
+        int checksum = 0;
+        for (int ply = 0; ply < played.moves.size(); ply++) {
+            MinimaxPrune<Square> search = isMax ? max : min;
+            checksum += search.minimaxSearch(played.depth, isMax).column();
+            counters.nodes += search.getSearchStats().getNodes();
+            counters.researches += search.getSearchStats().getResearches();
+            if (search.getLastResult().score() != played.scores.get(ply)) {
+                played.mismatches++;
+            }
+            game.execute(played.moves.get(ply), isMax);
+            isMax = !isMax;
+        }
+        played.games++;
+        return checksum;
+    }
+
+    private static HashedGame<Square> newGame(String name) {
+        return switch (name) {
+            case "connectfour" -> new ConnectFour();
+            case "gomoku" -> new MNKGame(15, 15, 5);
+            default -> throw new IllegalArgumentException("Unknown game: " + name);
+        };
+    }
+
+    @SuppressWarnings("unchecked")
+    private static HashedGame<Square> copy(HashedGame<Square> game) {
+        return (HashedGame<Square>) game.copy();
+    }
+
+    private static MinimaxPrune<Square> newSearch(HashedGame<Square> game, MinimaxPrune.Driver driver, int window) {
+        MinimaxPrune<Square> search = new MinimaxPrune<>(game);
+        search.setMoveOrdering(new KillerHistoryOrdering(game.moveIdCount()));
+        search.setDriver(driver);
+        search.setAspirationWindow(window);
+        return search;
+    }
+}
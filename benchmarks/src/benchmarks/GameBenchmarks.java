@@ -0,0 +1,351 @@
+package benchmarks;
+
+import core_algorithms.IntMinimaxPrune;
+import core_algorithms.MinimaxPrune;
+import core_algorithms.SearchStats;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import problems.ConnectFour;
+import problems.MNKGame;
+import problems.Square;
+import problems.TicTacToe;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Microbenchmarks of the game primitives and of the search on fixed midgame
+ * positions:
+ * - ConnectFour: execute + undo (Square and int moves), getAllRemainingMoves,
+ *   generateMoves, utility, isTerminal
+ * - TicTacToe: execute + undo, generateMoves, utility, on boards that fit
+ *   in one long per player and on a 9x9 board that does not
+ * - MinimaxPrune and IntMinimaxPrune at fixed depths, with the transposition
+ *   table disabled so that every operation repeats the same work
+ * - ConnectFour execute + undo and MinimaxPrune at a fixed depth on boards
+ *   of growing size, from the standard one to boards that need several
+ *   longs per player, with the nodes searched per second
+ * - MinimaxPrune searching a 4x4 TicTacToe position to the end of the game,
+ *   and a 15x15 Gomoku (MNKGame) position at a fixed depth
+ *
+ * The primitives cycle through several positions: a loop over one
+ * unchanging board would let the JIT compute utility and isTerminal once.
+ *
+ * Run with: gradle :benchmarks:jmh -Pjmh=GameBenchmarks
+ */
+@Warmup(iterations = 5, time = 500, timeUnit = TimeUnit.MILLISECONDS)
+@Measurement(iterations = 10, time = 500, timeUnit = TimeUnit.MILLISECONDS)
+@Fork(1)
+public class GameBenchmarks {
+
+    // Move sequences (columns, X moves first) leading to the measured Connect Four positions, all with O to move
+    private static final String[] CONNECT_FOUR_POSITIONS = {"3324156", "332415652", "33241565201", "32342255116"};
+    // Board sizes and move sequences (cells in row-major order, X moves first) of the measured Tic Tac Toe positions
+    private static final int[] TIC_TAC_TOE_SIZES = {3, 3, 4, 4, 9};
+    private static final int[][] TIC_TAC_TOE_POSITIONS = {{4, 0, 8}, {4, 0, 2, 6}, {0, 5, 10, 15, 3}, {5, 6, 9, 10, 0, 12},
+            {40, 30, 50, 60, 70, 80}};
+    // Index into TIC_TAC_TOE_POSITIONS of the position searched to the end of the game
+    private static final int TIC_TAC_TOE_SEARCH_POSITION = 3;
+    private static final int CONNECT_FOUR_SIZE_DEPTH = 7;
+    // Squares (row * 15 + column, X moves first) of the measured Gomoku position, and its search depth
+    private static final int[] GOMOKU_POSITION = {112, 113, 97, 127, 98, 96};
+    private static final int GOMOKU_DEPTH = 5;
+
+    /**
+     * All of CONNECT_FOUR_POSITIONS, with their moves in both representations.
+     */
+    @State(Scope.Thread)
+    public static class ConnectFourPositions {
+        final int n = CONNECT_FOUR_POSITIONS.length;
+        final ConnectFour[] games = new ConnectFour[n];
+        final boolean[] toMove = new boolean[n];
+        final List<List<Square>> squares = new ArrayList<>();
+        final int[][] columns = new int[n][];
+        final int[] counts = new int[n];
+        int[] buffer;
+        // advanced by every operation, to pick the position and the move
+        int i;
+
+        @Setup
+        public void setUp() {
+            for (int p = 0; p < n; p++) {
+                games[p] = playSequence(CONNECT_FOUR_POSITIONS[p]);
+                toMove[p] = CONNECT_FOUR_POSITIONS[p].length() % 2 == 0;
+                squares.add(games[p].getAllRemainingMoves());
+                columns[p] = new int[games[p].moveIdCount()];
+                counts[p] = games[p].generateMoves(columns[p]);
+            }
+            buffer = new int[games[0].moveIdCount()];
+        }
+    }
+
+    /**
+     * All of TIC_TAC_TOE_POSITIONS, with their moves.
+     */
+    @State(Scope.Thread)
+    public static class TicTacToePositions {
+        final int n = TIC_TAC_TOE_POSITIONS.length;
+        final TicTacToe[] games = new TicTacToe[n];
+        final boolean[] toMove = new boolean[n];
+        final int[][] cells = new int[n][];
+        final int[] counts = new int[n];
+        int[] buffer;
+        int i;
+
+        @Setup
+        public void setUp() {
+            for (int p = 0; p < n; p++) {
+                games[p] = playTicTacToe(p);
+                toMove[p] = TIC_TAC_TOE_POSITIONS[p].length % 2 == 0;
+                cells[p] = new int[games[p].moveIdCount()];
+                counts[p] = games[p].generateMoves(cells[p]);
+            }
+            buffer = new int[games[n - 1].moveIdCount()];
+        }
+    }
+
+    /**
+     * One Connect Four position searched to a fixed depth, without a transposition table.
+     */
+    @State(Scope.Thread)
+    public static class SearchPosition {
+        @Param({"3324156", "332415652", "33241565201", "32342255116"})
+        public String position;
+        @Param({"6", "8"})
+        public int depth;
+        MinimaxPrune<Square> search;
+        IntMinimaxPrune intSearch;
+
+        @Setup
+        public void setUp() {
+            ConnectFour game = playSequence(position);
+            search = new MinimaxPrune<>(game, 0);
+            intSearch = new IntMinimaxPrune(game, 0);
+        }
+    }
+
+    /**
+     * A Connect Four board of the given size (rows x columns, k in a row)
+     * after a few center moves.
+     */
+    @State(Scope.Thread)
+    public static class BoardSize {
+        @Param({"6x7k4", "7x8k4", "7x9k4", "7x9k5", "10x12k4"})
+        public String size;
+        ConnectFour game;
+        boolean xToMove;
+        int[] moves;
+        int count;
+        MinimaxPrune<Square> search;
+        int i;
+
+        @Setup
+        public void setUp() {
+            String[] parts = size.split("[xk]");
+            int columns = Integer.parseInt(parts[1]);
+            game = new ConnectFour(Integer.parseInt(parts[0]), columns, Integer.parseInt(parts[2]));
+            int center = columns / 2;
+            boolean isMax = true;
+            for (int column : new int[] {center, center, center - 1, center + 1}) {
+                game.execute(column, isMax);
+                isMax = !isMax;
+            }
+            xToMove = isMax;
+            moves = new int[game.moveIdCount()];
+            count = game.generateMoves(moves);
+            search = new MinimaxPrune<>(game, 0);
+        }
+    }
+
+    /**
+     * Nodes searched, reported per second next to the searches per second.
+     * Needs search statistics, which are on unless -Dsearch.stats=false.
+     */
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.OPERATIONS)
+    public static class Nodes {
+        public long nodes;
+
+        @Setup(Level.Iteration)
+        public void reset() {
+            nodes = 0;
+        }
+    }
+
+    @Benchmark
+    public long connectFourExecuteUndo(ConnectFourPositions s) {
+        int i = s.i++;
+        int p = i % s.n;
+        List<Square> moves = s.squares.get(p);
+        Square square = moves.get((i / s.n) % moves.size());
+        s.games[p].execute(square, s.toMove[p]);
+        long key = s.games[p].hashKey();
+        s.games[p].undo(square, s.toMove[p]);
+        return key;
+    }
+
+    @Benchmark
+    public long connectFourExecuteUndoInt(ConnectFourPositions s) {
+        int i = s.i++;
+        int p = i % s.n;
+        int column = s.columns[p][(i / s.n) % s.counts[p]];
+        s.games[p].execute(column, s.toMove[p]);
+        long key = s.games[p].hashKey();
+        s.games[p].undo(column, s.toMove[p]);
+        return key;
+    }
+
+    @Benchmark
+    public List<Square> connectFourGetAllRemainingMoves(ConnectFourPositions s) {
+        return s.games[s.i++ % s.n].getAllRemainingMoves();
+    }
+
+    @Benchmark
+    public int connectFourGenerateMoves(ConnectFourPositions s) {
+        return s.games[s.i++ % s.n].generateMoves(s.buffer);
+    }
+
+    @Benchmark
+    public int connectFourUtility(ConnectFourPositions s) {
+        return s.games[s.i++ % s.n].utility();
+    }
+
+    @Benchmark
+    public boolean connectFourIsTerminal(ConnectFourPositions s) {
+        return s.games[s.i++ % s.n].isTerminal();
+    }
+
+    @Benchmark
+    public int ticTacToeExecuteUndoInt(TicTacToePositions s) {
+        int i = s.i++;
+        int p = i % s.n;
+        int cell = s.cells[p][(i / s.n) % s.counts[p]];
+        s.games[p].execute(cell, s.toMove[p]);
+        int utility = s.games[p].utility();
+        s.games[p].undo(cell, s.toMove[p]);
+        return utility;
+    }
+
+    @Benchmark
+    public int ticTacToeGenerateMoves(TicTacToePositions s) {
+        return s.games[s.i++ % s.n].generateMoves(s.buffer);
+    }
+
+    @Benchmark
+    public int ticTacToeUtility(TicTacToePositions s) {
+        return s.games[s.i++ % s.n].utility();
+    }
+
+    @Benchmark
+    public Square minimaxSearch(SearchPosition s) {
+        return s.search.minimaxSearch(s.depth);
+    }
+
+    @Benchmark
+    public int intMinimaxSearch(SearchPosition s) {
+        return s.intSearch.minimaxSearch(s.depth);
+    }
+
+    @Benchmark
+    public long boardSizeExecuteUndoInt(BoardSize s) {
+        int column = s.moves[s.i++ % s.count];
+        s.game.execute(column, s.xToMove);
+        long key = s.game.hashKey();
+        s.game.undo(column, s.xToMove);
+        return key;
+    }
+
+    @Benchmark
+    public Square boardSizeMinimaxSearch(BoardSize s, Nodes nodes) {
+        Square move = s.search.minimaxSearch(CONNECT_FOUR_SIZE_DEPTH, s.xToMove);
+        if (SearchStats.ENABLED) nodes.nodes += s.search.getSearchStats().getNodes();
+        return move;
+    }
+
+    /**
+     * A 4x4 Tic Tac Toe position, searched to the end of the game.
+     */
+    @State(Scope.Thread)
+    public static class TicTacToeSearch {
+        boolean isMax;
+        int depth;
+        MinimaxPrune<Square> search;
+
+        @Setup
+        public void setUp() {
+            TicTacToe game = playTicTacToe(TIC_TAC_TOE_SEARCH_POSITION);
+            isMax = TIC_TAC_TOE_POSITIONS[TIC_TAC_TOE_SEARCH_POSITION].length % 2 == 0;
+            depth = game.moveIdCount();
+            search = new MinimaxPrune<>(game, 0);
+        }
+    }
+
+    @Benchmark
+    public Square ticTacToe4x4Search(TicTacToeSearch s) {
+        return s.search.minimaxSearch(s.depth, s.isMax);
+    }
+
+    /**
+     * A 15x15 Gomoku position, searched to GOMOKU_DEPTH.
+     */
+    @State(Scope.Thread)
+    public static class GomokuSearch {
+        boolean xToMove;
+        MinimaxPrune<Square> search;
+
+        @Setup
+        public void setUp() {
+            MNKGame game = new MNKGame(15, 15, 5);
+            boolean isMax = true;
+            for (int square : GOMOKU_POSITION) {
+                game.execute(square, isMax);
+                isMax = !isMax;
+            }
+            xToMove = isMax;
+            search = new MinimaxPrune<>(game, 0);
+        }
+    }
+
+    @Benchmark
+    public Square gomokuSearch(GomokuSearch s) {
+        return s.search.minimaxSearch(GOMOKU_DEPTH, s.xToMove);
+    }
+
+    /**
+     * Plays one of TIC_TAC_TOE_POSITIONS on a new board, alternating X and O.
+     */
+    private static TicTacToe playTicTacToe(int position) {
+        TicTacToe game = new TicTacToe(TIC_TAC_TOE_SIZES[position]);
+        boolean isMax = true;
+        for (int cell : TIC_TAC_TOE_POSITIONS[position]) {
+            game.execute(cell, isMax);
+            isMax = !isMax;
+        }
+        return game;
+    }
+
+    /**
+     * Plays a sequence of columns on a new board, alternating X and O.
+     */
+    static ConnectFour playSequence(String columns) {
+        ConnectFour game = new ConnectFour();
+        boolean isMax = true;
+        for (char c : columns.toCharArray()) {
+            game.execute(c - '0', isMax);
+            isMax = !isMax;
+        }
+        if (game.isTerminal()) {
+            throw new IllegalStateException("Position " + columns + " is already over");
+        }
+        return game;
+    }
+}
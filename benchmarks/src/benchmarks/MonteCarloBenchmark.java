@@ -0,0 +1,110 @@
+package benchmarks;
+
+import core_algorithms.MonteCarloTreeSearch;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import problems.ConnectFour;
+import problems.Game;
+import problems.MNKGame;
+import problems.Square;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures how MonteCarloTreeSearch scales with the number of threads:
+ * every operation is one search of a fixed number of playouts, shared by
+ * the threads, so the searches per second rise as threads are added. The
+ * playouts per second are a secondary result. The speedup can only exceed 1
+ * with as many cores as threads.
+ *
+ * Run with: gradle :benchmarks:jmh -Pjmh=MonteCarloBenchmark
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class MonteCarloBenchmark {
+
+    // Squares (row * 15 + column, X moves first) of the measured Gomoku position
+    private static final int[] GOMOKU_POSITION = {112, 113, 97, 127, 98, 96};
+
+    /**
+     * The searched position and the engine, which keeps its threads across operations.
+     */
+    @State(Scope.Benchmark)
+    public static class Engine {
+        // connectfour:columns played, or gomoku
+        @Param({"connectfour:", "connectfour:3324156", "gomoku"})
+        public String position;
+        @Param({"1", "2", "4"})
+        public int threads;
+        @Param({"20000"})
+        public long playouts;
+        boolean isMax;
+        MonteCarloTreeSearch<Square> search;
+
+        @Setup(Level.Trial)
+        public void setUp() {
+            Game<Square> game;
+            int winScore;
+            isMax = true;
+            if (position.equals("gomoku")) {
+                MNKGame gomoku = new MNKGame(15, 15, 5);
+                for (int square : GOMOKU_POSITION) {
+                    gomoku.execute(square, isMax);
+                    isMax = !isMax;
+                }
+                game = gomoku;
+                winScore = MNKGame.WIN_SCORE;
+            } else {
+                ConnectFour connectFour = new ConnectFour();
+                for (char c : position.substring(position.indexOf(':') + 1).toCharArray()) {
+                    connectFour.execute(c - '0', isMax);
+                    isMax = !isMax;
+                }
+                game = connectFour;
+                winScore = ConnectFour.WIN_SCORE;
+            }
+            search = new MonteCarloTreeSearch<>(game, winScore, threads);
+        }
+
+        @TearDown(Level.Trial)
+        public void close() {
+            search.close();
+        }
+    }
+
+    /**
+     * Playouts, reported per second next to the searches.
+     */
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.OPERATIONS)
+    public static class Playouts {
+        public long playouts;
+
+        @Setup(Level.Iteration)
+        public void reset() {
+            playouts = 0;
+        }
+    }
+
+    @Benchmark
+    public Square search(Engine engine, Playouts playouts) {
+        Square move = engine.search.monteCarloSearch(engine.playouts, engine.isMax);
+        playouts.playouts += engine.search.getPlayouts();
+        return move;
+    }
+}
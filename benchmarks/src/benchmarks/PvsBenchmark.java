@@ -0,0 +1,108 @@
+package benchmarks;
+
+import core_algorithms.MinimaxPrune;
+import core_algorithms.NegamaxPVS;
+import core_algorithms.SearchStats;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import problems.ConnectFour;
+import problems.Square;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares NegamaxPVS with MinimaxPrune node for node: both search the same
+ * Connect Four positions to the same depth, each with a new transposition
+ * table of the default size for every operation. NegamaxPVS deepens one ply
+ * at a time to order its moves; MinimaxPrune searches the depth directly.
+ *
+ * Reports the time per search and, as a secondary result, the nodes it
+ * visited. Both searches must find the same score; the setup fails otherwise.
+ * The MinimaxPrune node counts need search statistics, which are on unless
+ * -Dsearch.stats=false.
+ *
+ * Run with: gradle :benchmarks:jmh -Pjmh=PvsBenchmark
+ */
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class PvsBenchmark {
+
+    /**
+     * A position (columns played, X moves first) and a new search of it for every operation.
+     */
+    @State(Scope.Thread)
+    public static class Position {
+        @Param({"", "3324156", "332415652", "33241565201", "32342255116"})
+        public String position;
+        @Param({"8", "10"})
+        public int depth;
+        @Param({"minimax", "pvs"})
+        public String engine;
+        ConnectFour game;
+        boolean isMax;
+        MinimaxPrune<Square> minimax;
+        NegamaxPVS<Square> pvs;
+
+        @Setup(Level.Trial)
+        public void setUp() {
+            if (!SearchStats.ENABLED) {
+                throw new IllegalStateException("Search statistics are off; run without -Dsearch.stats=false");
+            }
+            game = new ConnectFour();
+            isMax = true;
+            for (char c : position.toCharArray()) {
+                game.execute(c - '0', isMax);
+                isMax = !isMax;
+            }
+            MinimaxPrune<Square> minimaxCheck = new MinimaxPrune<>(game);
+            minimaxCheck.minimaxSearch(depth, isMax);
+            int minimaxScore = minimaxCheck.getLastResult().score();
+            int pvsScore = new NegamaxPVS<>(game).search(depth, isMax).score();
+            if (minimaxScore != pvsScore) {
+                throw new IllegalStateException("\"" + position + "\": NegamaxPVS scored " + pvsScore
+                        + ", MinimaxPrune " + minimaxScore);
+            }
+        }
+
+        @Setup(Level.Invocation)
+        public void newSearch() {
+            minimax = engine.equals("pvs") ? null : new MinimaxPrune<>(game);
+            pvs = engine.equals("pvs") ? new NegamaxPVS<>(game) : null;
+        }
+    }
+
+    /**
+     * Nodes visited by one operation.
+     */
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class Nodes {
+        public long nodes;
+    }
+
+    @Benchmark
+    public Square search(Position p, Nodes nodes) {
+        if (p.pvs != null) {
+            Square move = p.pvs.search(p.depth, p.isMax).pathOfMoves().get(0);
+            nodes.nodes = p.pvs.getNodeCount();
+            return move;
+        }
+        Square move = p.minimax.minimaxSearch(p.depth, p.isMax);
+        nodes.nodes = p.minimax.getSearchStats().getNodes();
+        return move;
+    }
+}
@@ -0,0 +1,204 @@
+package benchmarks;
+
+import core_algorithms.MinimaxPrune;
+import core_algorithms.SearchStats;
+import core_algorithms.TranspositionTable;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import problems.ConnectFour;
+import problems.Game;
+import problems.HashedGame;
+import problems.IntMoveGame;
+import problems.Square;
+import problems.SymmetricGame;
+import problems.TicTacToe;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures what canonical position keys (see SymmetricGame) save:
+ * - positions: the number of distinct positions reachable in a given number
+ *   of plies, keyed by hashKey and by canonicalKey; the latter is what a
+ *   position cache, transposition table or opening book has to store
+ * - search: the nodes MinimaxPrune searches from openings that are
+ *   symmetric, with the transposition table keyed by plain hash keys and by
+ *   canonical keys
+ *
+ * The counts are secondary results of every operation. Both kinds of keys
+ * must give the same score; the setup fails otherwise.
+ * Node counts need search statistics, which are on unless -Dsearch.stats=false.
+ *
+ * Run with: gradle :benchmarks:jmh -Pjmh=SymmetryBenchmark
+ */
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(1)
+public class SymmetryBenchmark {
+
+    private static final long TABLE_BYTES = 64L << 20;
+
+    /**
+     * Hides the symmetries of a game, so that the search keys its table by plain hash keys.
+     */
+    private record Unsymmetric<A>(HashedGame<A> game) implements HashedGame<A> {
+        @Override public List<A> getAllRemainingMoves() { return game.getAllRemainingMoves(); }
+        @Override public int utility() { return game.utility(); }
+        @Override public boolean isTerminal() { return game.isTerminal(); }
+        @Override public void execute(A move, boolean isMax) { game.execute(move, isMax); }
+        @Override public void undo(A move, boolean isMax) { game.undo(move, isMax); }
+        @Override public Game<A> copy() { return new Unsymmetric<>((HashedGame<A>) game.copy()); }
+        @Override public long hashKey() { return game.hashKey(); }
+        @Override public int moveId(A move) { return game.moveId(move); }
+        @Override public int moveIdCount() { return game.moveIdCount(); }
+    }
+
+    /**
+     * A game from its start, and how many plies to enumerate.
+     */
+    @State(Scope.Benchmark)
+    public static class Enumeration {
+        // game:plies
+        @Param({"connectfour:8", "tictactoe3:9", "tictactoe4:6"})
+        public String game;
+        int plies;
+
+        @Setup
+        public void setUp() {
+            plies = Integer.parseInt(game.substring(game.indexOf(':') + 1));
+        }
+    }
+
+    /**
+     * Distinct positions found by one operation.
+     */
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class Positions {
+        public long plainPositions;
+        public long canonicalPositions;
+    }
+
+    /**
+     * A symmetric opening searched to a fixed depth, with a new table for every operation.
+     */
+    @State(Scope.Thread)
+    public static class Search {
+        // game:opening:depth, the opening as columns or cells, X moves first
+        @Param({"connectfour::10", "connectfour:3:10", "connectfour:33:10", "connectfour:3333:10",
+                "tictactoe3::9", "tictactoe3:4:8", "tictactoe4::6"})
+        public String position;
+        @Param({"plain", "canonical"})
+        public String keys;
+        SymmetricGame<Square> game;
+        boolean isMax;
+        int depth;
+        MinimaxPrune<Square> search;
+
+        @Setup(Level.Trial)
+        public void setUp() {
+            if (!SearchStats.ENABLED) {
+                throw new IllegalStateException("Search statistics are off; run without -Dsearch.stats=false");
+            }
+            String[] parts = position.split(":", -1);
+            SymmetricGame<Square> start = newGame(parts[0]);
+            isMax = true;
+            for (char c : parts[1].toCharArray()) {
+                ((IntMoveGame) start).execute(c - '0', isMax);
+                isMax = !isMax;
+            }
+            game = start;
+            depth = Integer.parseInt(parts[2]);
+            // the keys must not change the result
+            MinimaxPrune<Square> plain = new MinimaxPrune<>(new Unsymmetric<>(game), new TranspositionTable(TABLE_BYTES));
+            plain.minimaxSearch(depth, isMax);
+            MinimaxPrune<Square> canonical = new MinimaxPrune<>(game, new TranspositionTable(TABLE_BYTES));
+            canonical.minimaxSearch(depth, isMax);
+            int plainScore = plain.getLastResult().score();
+            int canonicalScore = canonical.getLastResult().score();
+            if (plainScore != canonicalScore) {
+                throw new IllegalStateException(position + ": canonical keys changed the score from "
+                        + plainScore + " to " + canonicalScore);
+            }
+        }
+
+        @Setup(Level.Invocation)
+        public void newTable() {
+            HashedGame<Square> keyed = keys.equals("plain") ? new Unsymmetric<>(game) : game;
+            search = new MinimaxPrune<>(keyed, new TranspositionTable(TABLE_BYTES));
+        }
+    }
+
+    /**
+     * Nodes searched by one operation.
+     */
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class Nodes {
+        public long nodes;
+    }
+
+    @Benchmark
+    public int positions(Enumeration enumeration, Positions positions) {
+        SymmetricGame<Square> game = newGame(enumeration.game.substring(0, enumeration.game.indexOf(':')));
+        Set<Long> plain = new HashSet<>();
+        Set<Long> canonical = new HashSet<>();
+        int plies = enumeration.plies;
+        enumerate(game, plies, true, new int[plies + 1][game.moveIdCount()], plain, canonical);
+        positions.plainPositions = plain.size();
+        positions.canonicalPositions = canonical.size();
+        return canonical.size();
+    }
+
+    @Benchmark
+    public Square search(Search s, Nodes nodes) {
+        Square move = s.search.minimaxSearch(s.depth, s.isMax);
+        nodes.nodes = s.search.getSearchStats().getNodes();
+        return move;
+    }
+
+    private static SymmetricGame<Square> newGame(String name) {
+        return switch (name) {
+            case "connectfour" -> new ConnectFour();
+            case "tictactoe3" -> new TicTacToe(3);
+            case "tictactoe4" -> new TicTacToe(4);
+            default -> throw new IllegalArgumentException("Unknown game: " + name);
+        };
+    }
+
+    private static void enumerate(SymmetricGame<Square> game, int plies, boolean isMax,
+                                  int[][] buffers, Set<Long> plain, Set<Long> canonical) {
+        // the side to move is part of the position
+        long side = isMax ? 0 : 1;
+        if (!plain.add(game.hashKey() ^ side)) {
+            return; // already expanded through another move order
+        }
+        canonical.add(game.canonicalKey() ^ side);
+        if (plies == 0 || game.isTerminal()) {
+            return;
+        }
+        IntMoveGame moveGame = (IntMoveGame) game;
+        int[] moves = buffers[plies];
+        int count = moveGame.generateMoves(moves);
+        for (int i = 0; i < count; i++) {
+            moveGame.execute(moves[i], isMax);
+            enumerate(game, plies - 1, !isMax, buffers, plain, canonical);
+            moveGame.undo(moves[i], isMax);
+        }
+    }
+}
@@ -0,0 +1,25 @@
+package core_algorithms;
+
+import problems.Game;
+
+/**
+ * Scores the positions a search reaches at its depth limit, in place of the
+ * game's own heuristic (Game#utility). Positions where the game is over are
+ * always scored by the game, so wins and losses keep their values.
+ *
+ * A transposition table stores the scores of one evaluation; searches with
+ * different evaluations must not share one.
+ *
+ * @param <A> the type representing a move or action in the game
+ */
+@FunctionalInterface
+public interface Evaluation<A> {
+    /**
+     * Scores a position that is not over.
+     *
+     * @param game  the game, in the position to score; left in that position
+     * @param isMax true if MAX is to move
+     * @return the score: higher means better for the MAX player
+     */
+    int evaluate(Game<A> game, boolean isMax);
+}
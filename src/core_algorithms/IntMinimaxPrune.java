@@ -0,0 +1,386 @@
+package core_algorithms;
+
+import problems.IntMoveGame;
+
+import java.time.Duration;
+import java.util.Arrays;
+
+/**
+ * Implements the Minimax search algorithm with alpha-beta pruning over
+ * games with int-encoded moves (see IntMoveGame).
+ *
+ * This is the same search as MinimaxPrune (transposition table, table move
+ * first, optional MoveOrdering, fixed-depth or time-budgeted iterative
+ * deepening), but every buffer it needs (the moves, their search order and
+ * the principal variation of each ply) is allocated up front and reused, so
+ * the search itself allocates nothing per position. IntMoveSearch converts
+ * its results back to move objects for the runners.
+ *
+ * Assumptions:
+ * - Human is the MAX player
+ * - AI is the MIN player
+ */
+public class IntMinimaxPrune {
+    // Deepest iteration a timed search will start
+    public static final int MAX_SEARCH_DEPTH = MinimaxPrune.MAX_SEARCH_DEPTH;
+    // Returned by the search when there is no move to play
+    public static final int NO_MOVE = -1;
+    // Mixed into the hash key when MAX is to move, so both sides get separate entries
+    private static final long MAX_TO_MOVE = 0x9E3779B97F4A7C15L;
+    // Depth stored in the table for subtrees that were searched to the end of the game
+    private static final int RESOLVED_DEPTH = 255;
+    // A timed search looks at the clock once every (mask + 1) nodes
+    private static final int CLOCK_CHECK_MASK = 1023;
+
+    protected final IntMoveGame game;
+    // null when the transposition table is disabled
+    private final TranspositionTable table;
+    // Sorts the moves after the table move; null keeps the game's order
+    private MoveOrdering ordering;
+    // Number of distinct moves, i.e. the length of every per-ply buffer
+    private final int width;
+
+    // Per ply: the generated moves, sorted in search order, and their priorities
+    private int[][] moveBuffers = new int[0][];
+    private int[][] priorityBuffers = new int[0][];
+    // Triangular principal variation table: row p holds the best line from ply p
+    private int[][] pvMoves = new int[0][];
+    private int[] pvLengths = new int[0];
+
+    private int rootDepth;
+    private int rootMoveHint = NO_MOVE;
+    private boolean hitHorizon;
+    private boolean timed;
+    private long deadline;
+    private int nodeCount;
+    private boolean aborted;
+    // Score and line of the last completed search
+    private int lastScore;
+    private int[] lastLine = new int[0];
+
+    public IntMinimaxPrune(IntMoveGame game) {
+        this(game, MinimaxPrune.DEFAULT_TABLE_BYTES);
+    }
+
+    /**
+     * @param game       the game to search
+     * @param tableBytes memory budget of the transposition table in bytes; 0 disables the table
+     */
+    public IntMinimaxPrune(IntMoveGame game, long tableBytes) {
+        this.game = game;
+        this.table = tableBytes > 0 ? new TranspositionTable(tableBytes) : null;
+        this.width = game.moveIdCount();
+        ensurePlies(MAX_SEARCH_DEPTH + 1);
+    }
+
+    /**
+     * Plugs in a move ordering used by every following search.
+     *
+     * @param ordering the ordering, or null to keep the order generated by the game
+     */
+    public final void setMoveOrdering(MoveOrdering ordering) {
+        this.ordering = ordering;
+    }
+
+    /**
+     * Performs a minimax search and returns the best move for the AI (the MIN player).
+     *
+     * @return the encoded first move on the path to the best outcome for the MIN player
+     */
+    public int minimaxSearch(int depthLimit) {
+        timed = false;
+        aborted = false;
+        rootMoveHint = NO_MOVE;
+        if (ordering != null) ordering.newSearch();
+        ensurePlies(depthLimit + 1);
+        search(depthLimit);
+        return lastLine[0];
+    }
+
+    /**
+     * Performs an iterative deepening search until the time budget runs out
+     * or the game tree is fully explored. The first iteration always completes.
+     *
+     * @param budget the wall-clock time allowed for the search
+     * @return the encoded best move found by the deepest completed iteration
+     */
+    public int minimaxSearch(Duration budget) {
+        deadline = System.nanoTime() + budget.toNanos();
+        aborted = false;
+        rootMoveHint = NO_MOVE;
+        if (ordering != null) ordering.newSearch();
+        int bestMove = NO_MOVE;
+        for (int depth = 1; depth <= MAX_SEARCH_DEPTH; depth++) {
+            timed = depth > 1;
+            search(depth);
+            if (aborted) {
+                break;
+            }
+            bestMove = lastLine[0];
+            rootMoveHint = bestMove;
+            if (!hitHorizon || System.nanoTime() - deadline > 0) {
+                break;
+            }
+        }
+        return bestMove;
+    }
+
+    /**
+     * @return the score (for MAX) of the last completed search
+     */
+    public int getLastScore() {
+        return lastScore;
+    }
+
+    /**
+     * @return a copy of the expected line of play (encoded moves) found by the last completed search
+     */
+    public int[] getPrincipalVariation() {
+        return lastLine.clone();
+    }
+
+    private void search(int depthLimit) {
+        rootDepth = depthLimit;
+        hitHorizon = false;
+        nodeCount = 0;
+        int score = min(Integer.MIN_VALUE, Integer.MAX_VALUE, depthLimit);
+        if (aborted) {
+            return;
+        }
+        if (pvLengths[0] == 0) {
+            throw new IllegalStateException("No Valid moves found");
+        }
+        lastScore = score;
+        lastLine = Arrays.copyOf(pvMoves[0], pvLengths[0]);
+    }
+
+    /**
+     * MAX node in the minimax tree.
+     *
+     * @return the best score for the MAX player; its line of play is left in the PV table
+     */
+    public int max(int alpha, int beta, int depth) {
+        if (timed && (++nodeCount & CLOCK_CHECK_MASK) == 0 && System.nanoTime() - deadline > 0)
+            aborted = true;
+        if (aborted)
+            return 0;
+        int ply = rootDepth - depth;
+        pvLengths[ply] = ply;
+        if (game.isTerminal())
+            return game.utility();
+        if (depth == 0) {
+            hitHorizon = true;
+            return game.utility();
+        }
+
+        long key = 0;
+        long entry = TranspositionTable.MISS;
+        if (table != null) {
+            key = game.hashKey() ^ MAX_TO_MOVE;
+            entry = table.probe(key);
+            if (entry != TranspositionTable.MISS && depth < rootDepth
+                    && TranspositionTable.depth(entry) >= depth) {
+                int score = TranspositionTable.score(entry);
+                int bound = TranspositionTable.bound(entry);
+                if (bound == TranspositionTable.LOWER_BOUND) alpha = Math.max(alpha, score);
+                if (bound == TranspositionTable.UPPER_BOUND) beta = Math.min(beta, score);
+                if (bound == TranspositionTable.EXACT || alpha >= beta) {
+                    hitHorizon |= TranspositionTable.depth(entry) != RESOLVED_DEPTH;
+                    return score;
+                }
+            }
+        }
+        int alphaOrig = alpha;
+        boolean parentHitHorizon = hitHorizon;
+        hitHorizon = false;
+
+        int bestMove = NO_MOVE;
+        int bestScore = Integer.MIN_VALUE;
+
+        int[] moves = moveBuffers[ply];
+        int count = orderMoves(moves, entry, depth, ply);
+        for (int i = 0; i < count; i++) {
+            int move = moves[i];
+            game.execute(move, true);
+            int score = min(alpha, beta, depth - 1);
+            game.undo(move, true);
+            if (aborted) {
+                return 0;
+            }
+
+            if (score > bestScore) {
+                bestScore = score;
+                bestMove = move;
+                updatePrincipalVariation(ply, move);
+            }
+
+            alpha = Math.max(alpha, bestScore);
+            if (alpha >= beta) {
+                if (ordering != null) ordering.cutoff(move, ply, depth, i);
+                break;
+            }
+        }
+
+        if (table != null && bestMove != NO_MOVE) {
+            table.store(key, hitHorizon ? depth : RESOLVED_DEPTH, boundOf(bestScore, alphaOrig, beta),
+                    bestScore, bestMove);
+        }
+        hitHorizon |= parentHitHorizon;
+        return bestScore;
+    }
+
+    /**
+     * MIN node in the minimax tree.
+     *
+     * @return the best score for the MIN player; its line of play is left in the PV table
+     */
+    public int min(int alpha, int beta, int depth) {
+        if (timed && (++nodeCount & CLOCK_CHECK_MASK) == 0 && System.nanoTime() - deadline > 0)
+            aborted = true;
+        if (aborted)
+            return 0;
+        int ply = rootDepth - depth;
+        pvLengths[ply] = ply;
+        if (game.isTerminal())
+            return game.utility();
+        if (depth == 0) {
+            hitHorizon = true;
+            return game.utility();
+        }
+
+        long key = 0;
+        long entry = TranspositionTable.MISS;
+        if (table != null) {
+            key = game.hashKey();
+            entry = table.probe(key);
+            if (entry != TranspositionTable.MISS && depth < rootDepth
+                    && TranspositionTable.depth(entry) >= depth) {
+                int score = TranspositionTable.score(entry);
+                int bound = TranspositionTable.bound(entry);
+                if (bound == TranspositionTable.LOWER_BOUND) alpha = Math.max(alpha, score);
+                if (bound == TranspositionTable.UPPER_BOUND) beta = Math.min(beta, score);
+                if (bound == TranspositionTable.EXACT || alpha >= beta) {
+                    hitHorizon |= TranspositionTable.depth(entry) != RESOLVED_DEPTH;
+                    return score;
+                }
+            }
+        }
+        int betaOrig = beta;
+        boolean parentHitHorizon = hitHorizon;
+        hitHorizon = false;
+
+        int bestMove = NO_MOVE;
+        int bestScore = Integer.MAX_VALUE;
+
+        int[] moves = moveBuffers[ply];
+        int count = orderMoves(moves, entry, depth, ply);
+        for (int i = 0; i < count; i++) {
+            int move = moves[i];
+            game.execute(move, false);
+            int score = max(alpha, beta, depth - 1);
+            game.undo(move, false);
+            if (aborted) {
+                return 0;
+            }
+
+            if (score < bestScore) {
+                bestScore = score;
+                bestMove = move;
+                updatePrincipalVariation(ply, move);
+            }
+
+            beta = Math.min(beta, bestScore);
+            if (beta <= alpha) {
+                if (ordering != null) ordering.cutoff(move, ply, depth, i);
+                break;
+            }
+        }
+
+        if (table != null && bestMove != NO_MOVE) {
+            table.store(key, hitHorizon ? depth : RESOLVED_DEPTH, boundOf(bestScore, alpha, betaOrig),
+                    bestScore, bestMove);
+        }
+        hitHorizon |= parentHitHorizon;
+        return bestScore;
+    }
+
+    /**
+     * Generates the moves of the current state into the buffer and sorts them
+     * in search order: the previous iteration's best move at the root or the
+     * table move elsewhere, then the rest by ordering priority (if any), ties
+     * keeping the game's order.
+     *
+     * @return the number of moves
+     */
+    private int orderMoves(int[] moves, long entry, int depth, int ply) {
+        int count = game.generateMoves(moves);
+        int first = depth == rootDepth && rootMoveHint != NO_MOVE ? rootMoveHint
+                : entry != TranspositionTable.MISS ? TranspositionTable.move(entry) : NO_MOVE;
+        int start = 0;
+        if (first != NO_MOVE) {
+            for (int i = 0; i < count; i++) {
+                if (moves[i] == first) {
+                    System.arraycopy(moves, 0, moves, 1, i);
+                    moves[0] = first;
+                    start = 1;
+                    break;
+                }
+            }
+        }
+        if (ordering == null) {
+            return count;
+        }
+
+        // stable insertion sort of every move but the first one, highest priority first
+        int[] priorities = priorityBuffers[ply];
+        for (int i = start; i < count; i++) {
+            int move = moves[i];
+            int priority = ordering.priority(move, ply);
+            int j = i;
+            while (j > start && priorities[j - 1] < priority) {
+                moves[j] = moves[j - 1];
+                priorities[j] = priorities[j - 1];
+                j--;
+            }
+            moves[j] = move;
+            priorities[j] = priority;
+        }
+        return count;
+    }
+
+    /**
+     * Makes move, followed by the line found at ply + 1, the line at ply.
+     */
+    private void updatePrincipalVariation(int ply, int move) {
+        int[] row = pvMoves[ply];
+        row[ply] = move;
+        int childLength = pvLengths[ply + 1];
+        System.arraycopy(pvMoves[ply + 1], ply + 1, row, ply + 1, childLength - ply - 1);
+        pvLengths[ply] = childLength;
+    }
+
+    /**
+     * Allocates the per-ply buffers for searches up to the given number of plies.
+     * Only called before a search starts, never during one.
+     */
+    private void ensurePlies(int plies) {
+        // one extra ply for the children of the deepest nodes
+        int size = plies + 1;
+        if (size <= moveBuffers.length) return;
+        int oldSize = moveBuffers.length;
+        moveBuffers = Arrays.copyOf(moveBuffers, size);
+        priorityBuffers = Arrays.copyOf(priorityBuffers, size);
+        pvMoves = new int[size][size];
+        pvLengths = new int[size];
+        for (int ply = oldSize; ply < size; ply++) {
+            moveBuffers[ply] = new int[width];
+            priorityBuffers[ply] = new int[width];
+        }
+    }
+
+    private static int boundOf(int score, int alpha, int beta) {
+        if (score <= alpha) return TranspositionTable.UPPER_BOUND;
+        if (score >= beta) return TranspositionTable.LOWER_BOUND;
+        return TranspositionTable.EXACT;
+    }
+}
@@ -0,0 +1,63 @@
+package core_algorithms;
+
+import java.time.Duration;
+import java.util.function.IntFunction;
+
+/**
+ * Lets a game played with move objects be searched by IntMinimaxPrune: the
+ * search runs on the encoded moves (see IntMoveGame) and allocates nothing
+ * per position, and only the move it returns is converted back, e.g. by
+ * ConnectFour::toSquare.
+ *
+ * Assumptions:
+ * - Human is the MAX player
+ * - AI is the MIN player
+ *
+ * @param <A> the type representing a move or action in the game
+ */
+public class IntMoveSearch<A> {
+    private final IntMinimaxPrune search;
+    // Converts an encoded move of the current state to its move object
+    private final IntFunction<A> toMove;
+
+    /**
+     * @param search the search, over the same game as the moves
+     * @param toMove converts an encoded move of the current state to its move object;
+     *               called before the move is played
+     */
+    public IntMoveSearch(IntMinimaxPrune search, IntFunction<A> toMove) {
+        this.search = search;
+        this.toMove = toMove;
+    }
+
+    /**
+     * Performs a minimax search and returns the best move for the AI (the MIN player).
+     *
+     * @return the first move on the path to the best outcome for the MIN player
+     */
+    public A minimaxSearch(int depthLimit) {
+        return convert(search.minimaxSearch(depthLimit));
+    }
+
+    /**
+     * Performs an iterative deepening search until the time budget runs out
+     * or the game tree is fully explored.
+     *
+     * @param budget the wall-clock time allowed for the search
+     * @return the best move found by the deepest completed iteration
+     */
+    public A minimaxSearch(Duration budget) {
+        return convert(search.minimaxSearch(budget));
+    }
+
+    /**
+     * @return the underlying search, e.g. for its score and principal variation
+     */
+    public IntMinimaxPrune getSearch() {
+        return search;
+    }
+
+    private A convert(int move) {
+        return move == IntMinimaxPrune.NO_MOVE ? null : toMove.apply(move);
+    }
+}
@@ -0,0 +1,105 @@
+package core_algorithms;
+
+import java.util.Arrays;
+
+/**
+ * Orders moves with two classic heuristics:
+ * - killer moves: the last two moves that caused a cutoff at the same ply,
+ *   which often refute the sibling positions as well
+ * - history: for every move, how often (weighted by depth) it caused a
+ *   cutoff anywhere in the tree
+ * Killers come first, then moves by decreasing history score; remaining
+ * ties keep the game's own preference (e.g., center columns first).
+ *
+ * Also counts how many cutoffs were produced by the first move tried,
+ * which tells how good the ordering is.
+ */
+public class KillerHistoryOrdering implements MoveOrdering {
+    // Killers always outrank history scores
+    private static final int KILLER_PRIORITY = Integer.MAX_VALUE / 2;
+    // History scores are halved when they would exceed this value
+    private static final int HISTORY_LIMIT = KILLER_PRIORITY / 2;
+    // Marks an empty killer slot
+    private static final int NO_MOVE = -1;
+
+    // Two killer slots per ply, indexed by 2 * ply
+    private int[] killers = new int[0];
+    // Cutoff weight of each move id
+    private final int[] history;
+
+    private long cutoffs;
+    private long firstMoveCutoffs;
+
+    /**
+     * @param moveIdCount the number of distinct move ids of the game
+     *                    (see problems.HashedGame#moveIdCount)
+     */
+    public KillerHistoryOrdering(int moveIdCount) {
+        this.history = new int[moveIdCount];
+    }
+
+    /**
+     * Forgets the killers, whose plies no longer match, and halves the
+     * history so that recent searches weigh more.
+     */
+    @Override
+    public void newSearch() {
+        Arrays.fill(killers, NO_MOVE);
+        for (int i = 0; i < history.length; i++) {
+            history[i] /= 2;
+        }
+    }
+
+    @Override
+    public int priority(int moveId, int ply) {
+        if (2 * ply + 1 < killers.length) {
+            if (killers[2 * ply] == moveId) return KILLER_PRIORITY + 1;
+            if (killers[2 * ply + 1] == moveId) return KILLER_PRIORITY;
+        }
+        return history[moveId];
+    }
+
+    @Override
+    public void cutoff(int moveId, int ply, int depth, int moveNumber) {
+        cutoffs++;
+        if (moveNumber == 0) {
+            firstMoveCutoffs++;
+        }
+
+        if (2 * ply + 1 >= killers.length) {
+            int oldLength = killers.length;
+            killers = Arrays.copyOf(killers, Math.max(2 * ply + 2, 2 * oldLength));
+            Arrays.fill(killers, oldLength, killers.length, NO_MOVE);
+        }
+        if (killers[2 * ply] != moveId) {
+            killers[2 * ply + 1] = killers[2 * ply];
+            killers[2 * ply] = moveId;
+        }
+
+        history[moveId] += depth * depth;
+        if (history[moveId] > HISTORY_LIMIT) {
+            for (int i = 0; i < history.length; i++) {
+                history[i] /= 2;
+            }
+        }
+    }
+
+    /**
+     * @return the number of cutoffs recorded since the last resetStatistics
+     */
+    public long getCutoffs() {
+        return cutoffs;
+    }
+
+    /**
+     * @return the fraction of cutoffs produced by the first move tried (0 if no cutoffs)
+     */
+    public double getFirstMoveCutoffRate() {
+        return cutoffs == 0 ? 0 : (double) firstMoveCutoffs / cutoffs;
+    }
+
+    public void resetStatistics() {
+        cutoffs = 0;
+        firstMoveCutoffs = 0;
+    }
+}
@@ -2,7 +2,6 @@ package core_algorithms;
 
 import problems.Game;
 
-import java.util.ArrayList;
 import java.util.List;
 
 /**
@@ -16,9 +15,12 @@ import java.util.List;
  */
 public class Minimax<A> {
     protected final Game<A> game;
+    // Best line found at every ply of the current search
+    private final PrincipalVariation<A> pv = new PrincipalVariation<>();
 
     /**
      * Record to store the score of a game state and the path of moves leading to it.
+     * Only built once per search, at the root; the recursion itself passes plain scores.
      */
     public record ScoreMove<A> (int score, List<A> pathOfMoves){}
 
@@ -32,63 +34,76 @@ public class Minimax<A> {
      * @return the first move on the path to the best outcome for the MIN player (i.e., AI)
      */
     public A minimaxSearch(){
-        ScoreMove<A> b = min();
-        return b.pathOfMoves().get(0);
+        return search().pathOfMoves().get(0);
     }
 
     /**
-     * MAX node in the minimax tree. Returns the move path that maximizes utility.
+     * Performs a minimax search from the current state, with the AI (MIN) to move.
      *
-     * @return best score and path of moves for the MAX player
+     * @return the best score for the MIN player and the expected line of play
      */
-    public ScoreMove<A> max(){
+    public ScoreMove<A> search(){
+        int score = min(0);
+        return new ScoreMove<>(score, pv.line());
+    }
+
+    /**
+     * MAX node in the minimax tree.
+     *
+     * @param ply number of moves played since the root
+     * @return the best score for the MAX player; its line of play is left in the PV table
+     */
+    public int max(int ply){
+        pv.clear(ply);
         if(game.isTerminal()){
-            return new ScoreMove<>(game.utility(),new ArrayList<>());
+            return game.utility();
         }else{
             int bestScore = Integer.MIN_VALUE;
-            List<A> bestPath = new ArrayList<>();
-            for(A move : game.getAllRemainingMoves()){
+            List<A> moves = game.getAllRemainingMoves();
+            for(int i = 0; i < moves.size(); i++){
+                A move = moves.get(i);
                 game.execute(move, true);
-                ScoreMove<A> a = min();
+                int score = min(ply + 1);
                 game.undo(move, true);
-                if (a.score() > bestScore ||
+                if (score > bestScore ||
                         //If the eventual utility score is the same, prefer the shorter path to get there
                         //i.e., win faster
-                        (a.score()==bestScore && a.pathOfMoves().size()+1 < bestPath.size())){
-                    bestScore = a.score();
-                    bestPath = a.pathOfMoves();
-                    bestPath.add(0, move);
+                        (score==bestScore && pv.length(ply + 1)+1 < pv.length(ply))){
+                    bestScore = score;
+                    pv.update(ply, move);
                 }
             }
-            return new ScoreMove<>(bestScore,bestPath);
+            return bestScore;
         }
     }
 
     /**
-     * MIN node in the minimax tree. Returns the move path that minimizes utility.
+     * MIN node in the minimax tree.
      *
-     * @return best score and path of moves for the MIN player
+     * @param ply number of moves played since the root
+     * @return the best score for the MIN player; its line of play is left in the PV table
      */
-    public ScoreMove<A> min(){
+    public int min(int ply){
+        pv.clear(ply);
         if(game.isTerminal()){
-            return new ScoreMove<>(game.utility(), new ArrayList<>());
+            return game.utility();
         }else {
             int bestScore = Integer.MAX_VALUE;
-            List<A> bestPath = new ArrayList<>();
-            for (A move : game.getAllRemainingMoves()) {
+            List<A> moves = game.getAllRemainingMoves();
+            for (int i = 0; i < moves.size(); i++) {
+                A move = moves.get(i);
                 game.execute(move, false);
-                ScoreMove<A> b = max();
+                int score = max(ply + 1);
                 game.undo(move, false);
-                if (b.score() < bestScore ||
+                if (score < bestScore ||
                         //This is optional: if the eventual utility score is the same,
                         // prefer the shorter path to get there, i.e., win faster.
-                        (b.score()==bestScore && b.pathOfMoves().size()+1 < bestPath.size())) {
-                    bestScore = b.score();
-                    bestPath = b.pathOfMoves();
-                    bestPath.add(0, move);
+                        (score==bestScore && pv.length(ply + 1)+1 < pv.length(ply))) {
+                    bestScore = score;
+                    pv.update(ply, move);
                 }
             }
-            return new ScoreMove<>(bestScore, bestPath);
+            return bestScore;
         }
 
     }
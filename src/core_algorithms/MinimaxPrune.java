@@ -1,12 +1,47 @@
 package core_algorithms;
 
 import problems.Game;
+import problems.HashedGame;
+import problems.SymmetricGame;
 
-import java.util.ArrayList;
+import java.time.Duration;
+import java.util.Arrays;
 import java.util.List;
 
 /**
- * Implements the classic Minimax search algorithm (without alpha-beta pruning).
+ * Implements the Minimax search algorithm with alpha-beta pruning.
+ *
+ * When the game maintains a Zobrist hash (see HashedGame), results are
+ * cached in a transposition table, which is used both to cut off positions
+ * that were already searched deep enough and to try the best move found
+ * previously first. The table is kept between calls to minimaxSearch.
+ * When the game is also a SymmetricGame, positions are cached under their
+ * canonical key, so that all the symmetric images of a position share one
+ * entry; the stored move is mapped to and from the canonical board.
+ * A PersistentTable can back the transposition table, so that the results
+ * of deep subtrees are kept on disk and reused by later runs of the program.
+ *
+ * Searches can be limited either by depth or by time. A timed search
+ * deepens one ply at a time until the budget runs out and returns the move
+ * found by the last iteration that completed.
+ *
+ * The root is searched with the full window by default. Two other drivers
+ * (see Driver) start from the score of the previous search, or of the
+ * previous iteration of a timed search, which is usually close: aspiration
+ * windows search a narrow window around it and widen it when the score
+ * falls outside, and MTD(f) converges on the score with null-window searches.
+ * Both find the same score as the full window, in fewer nodes when the
+ * estimate is good.
+ *
+ * Moves are tried in the order the game generates them, except that the
+ * transposition table move comes first. A MoveOrdering (e.g., killer and
+ * history heuristics) can be plugged in to sort the remaining moves.
+ *
+ * A search can be stopped from another thread (see stop), e.g., to cancel
+ * pondering (see Ponderer) once the move it was waiting for is known.
+ *
+ * Every search fills a SearchStats (nodes, cutoffs, branching factor, ...),
+ * available from getSearchStats, unless statistics are switched off.
  *
  * Assumptions:
  * - Human is the MAX player
@@ -15,15 +50,183 @@ import java.util.List;
  * @param <A> the type representing a move or action in the game
  */
 public class MinimaxPrune<A> {
+    // Default memory budget of the transposition table: 16 MB
+    public static final long DEFAULT_TABLE_BYTES = 16L << 20;
+    // Deepest iteration a timed search will start
+    public static final int MAX_SEARCH_DEPTH = 64;
+    // Mixed into the hash key when MAX is to move, so both sides get separate entries
+    private static final long MAX_TO_MOVE = 0x9E3779B97F4A7C15L;
+    // Depth stored in the table for subtrees that were searched to the end of the game,
+    // whose score is therefore valid at any depth
+    private static final int RESOLVED_DEPTH = 255;
+    // Only subtrees at least this deep are read from and written to the persistent table
+    private static final int PERSISTENT_MIN_DEPTH = 4;
+    // Default half-width of the first aspiration window; ConnectFour scores move by tens
+    public static final int DEFAULT_ASPIRATION_WINDOW = 50;
+    // A search looks at the clock and at stop requests once every (mask + 1) nodes
+    private static final int CLOCK_CHECK_MASK = 1023;
+
     protected final Game<A> game;
+    // The same game seen as hashable, or null when it does not support hashing
+    private final HashedGame<A> hashedGame;
+    // The same game seen as symmetric, or null when the table is disabled or the game has no symmetries
+    private final SymmetricGame<A> symmetricGame;
+    // null when the transposition table is disabled
+    private final TranspositionTable table;
+    // Results kept across runs; null when there is none
+    private PersistentTable persistentTable;
+    // Depth limit of the current search; positions at that depth are the root
+    private int rootDepth;
+    // Whether MAX is to move at the root of the current search
+    private boolean rootIsMax;
+    // Move to try first at the root, taken from the previous iteration of a timed search
+    private A rootMoveHint;
+    // Set when some position in the current subtree was cut short by the depth limit
+    private boolean hitHorizon;
+    // Whether the current search has a deadline, and when it expires (System.nanoTime)
+    private boolean timed;
+    private long deadline;
+    private int nodeCount;
+    // Set once the deadline has passed or a stop was requested; every node then returns immediately
+    private boolean aborted;
+    // Set by stop, from any thread
+    private volatile boolean stopRequested;
+    // Best line found at every ply of the current search
+    private final PrincipalVariation<A> pv = new PrincipalVariation<>();
+    // Sorts the moves after the table move; null keeps the game's order
+    private MoveOrdering ordering;
+    // Scores the positions at the depth limit; null uses the game's utility
+    private Evaluation<A> evaluation;
+    // Search order of the moves at each ply (indices into the generated list),
+    // and the priorities used to sort them
+    private int[][] orderBuffers = new int[0][];
+    private int[][] priorityBuffers = new int[0][];
+    // How the root is searched, and the first aspiration window
+    private Driver driver = Driver.FULL_WINDOW;
+    private int aspirationWindow = DEFAULT_ASPIRATION_WINDOW;
+    // Score and line of the last completed search
+    private ScoreMove<A> lastResult;
+    // Counters of the current or last search
+    private final SearchStats stats = new SearchStats();
 
     /**
      * Record to store the score of a game state and the path of moves leading to it.
+     * Only built once per search, at the root; the recursion itself passes plain scores.
      */
     public record ScoreMove<A> (int score, List<A> pathOfMoves){}
 
+    /**
+     * How the root of every search (or of every iteration) is searched.
+     */
+    public enum Driver {
+        /** One search with the window (-infinity, +infinity). */
+        FULL_WINDOW,
+        /** A window around the previous score, widened on fail high or fail low. */
+        ASPIRATION,
+        /** A sequence of null-window searches converging on the score (MTD(f)). */
+        MTDF;
+
+        /**
+         * Parses a driver name: full, aspiration or mtdf.
+         */
+        public static Driver parse(String name) {
+            return switch (name) {
+                case "full" -> FULL_WINDOW;
+                case "aspiration" -> ASPIRATION;
+                case "mtdf" -> MTDF;
+                default -> throw new IllegalArgumentException("Unknown driver: " + name);
+            };
+        }
+    }
+
     public MinimaxPrune(Game<A> game) {
+        this(game, DEFAULT_TABLE_BYTES);
+    }
+
+    /**
+     * @param game       the game to search
+     * @param tableBytes memory budget of the transposition table in bytes;
+     *                   0 disables the table. Ignored if the game is not a HashedGame.
+     */
+    public MinimaxPrune(Game<A> game, long tableBytes) {
+        this(game, game instanceof HashedGame && tableBytes > 0 ? new TranspositionTable(tableBytes) : null);
+    }
+
+    /**
+     * Creates a search that caches results in the given table. A table can
+     * be shared by the searches of many games of the same kind, even on
+     * different threads: entries are keyed by position, not by game.
+     *
+     * @param game  the game to search
+     * @param table the transposition table, or null to disable it.
+     *              Ignored if the game is not a HashedGame.
+     */
+    public MinimaxPrune(Game<A> game, TranspositionTable table) {
         this.game = game;
+        if (game instanceof HashedGame<A> hashed && table != null) {
+            this.hashedGame = hashed;
+            this.symmetricGame = game instanceof SymmetricGame<A> symmetric ? symmetric : null;
+            this.table = table;
+        } else {
+            this.hashedGame = null;
+            this.symmetricGame = null;
+            this.table = null;
+        }
+    }
+
+    /**
+     * Plugs in a move ordering used by every following search.
+     * Only used when the game is a HashedGame, which gives moves their ids.
+     *
+     * @param ordering the ordering, or null to keep the order generated by the game
+     */
+    public final void setMoveOrdering(MoveOrdering ordering){
+        this.ordering = ordering;
+    }
+
+    /**
+     * Plugs in the evaluation of the positions at the depth limit, used by
+     * every following search.
+     *
+     * @param evaluation the evaluation, or null to use the game's utility
+     */
+    public final void setEvaluation(Evaluation<A> evaluation){
+        this.evaluation = evaluation;
+    }
+
+    /**
+     * Selects how the root of every following search is searched.
+     *
+     * @param driver the root driver; FULL_WINDOW by default
+     */
+    public final void setDriver(Driver driver){
+        this.driver = driver;
+    }
+
+    /**
+     * Sets the half-width of the first window of the ASPIRATION driver, in
+     * units of the game's utility: the score is expected to stay within it
+     * from one search to the next.
+     *
+     * @param window the half-width, at least 1; DEFAULT_ASPIRATION_WINDOW by default
+     */
+    public final void setAspirationWindow(int window){
+        if (window < 1) {
+            throw new IllegalArgumentException("Aspiration window must be at least 1: " + window);
+        }
+        this.aspirationWindow = window;
+    }
+
+    /**
+     * Backs the transposition table with a table kept on disk: positions
+     * missing from the transposition table are looked up there, and the
+     * results of deep subtrees are stored there as well. Only used when the
+     * transposition table is enabled. The caller flushes and closes it.
+     *
+     * @param persistentTable the table, or null to stop using one
+     */
+    public final void setPersistentTable(PersistentTable persistentTable){
+        this.persistentTable = persistentTable;
     }
 
     /**
@@ -32,83 +235,535 @@ public class MinimaxPrune<A> {
      * @return the first move on the path to the best outcome for the MIN player (i.e., AI)
      */
     public A minimaxSearch(int depthLimit){
-        int alpha = Integer.MIN_VALUE;
-        int beta = Integer.MAX_VALUE;
-        ScoreMove<A> b = min(alpha, beta, depthLimit);
+        return minimaxSearch(depthLimit, false);
+    }
+
+    /**
+     * Performs a minimax search for either player, e.g., to analyze positions
+     * where the human (MAX) is to move.
+     *
+     * @param isMax true if MAX is to move, false if MIN is
+     * @return the first move on the path to the best outcome for the player to move,
+     *         or null if the search was stopped
+     */
+    public A minimaxSearch(int depthLimit, boolean isMax){
+        rootIsMax = isMax;
+        timed = false;
+        aborted = false;
+        rootMoveHint = null;
+        if (ordering != null) ordering.newSearch();
+        if (SearchStats.ENABLED) stats.start();
+        ScoreMove<A> result = search(depthLimit);
+        if (SearchStats.ENABLED) stats.finish(result == null ? 0 : depthLimit);
+        return result == null ? null : result.pathOfMoves().get(0);
+    }
+
+    /**
+     * Performs an iterative deepening search: searches to depth 1, 2, 3, ...
+     * until the time budget runs out or the game tree is fully explored.
+     * Each iteration tries the best move of the previous one first. The
+     * first iteration always completes, whatever the budget.
+     *
+     * @param budget the wall-clock time allowed for the search
+     * @return the best move found by the deepest completed iteration
+     */
+    public A minimaxSearch(Duration budget){
+        return minimaxSearch(budget, false);
+    }
+
+    /**
+     * Performs an iterative deepening search for either player.
+     *
+     * @param budget the wall-clock time allowed for the search
+     * @param isMax  true if MAX is to move, false if MIN is
+     * @return the best move for the player to move found by the deepest completed iteration,
+     *         or null if the search was stopped before any iteration completed
+     */
+    public A minimaxSearch(Duration budget, boolean isMax){
+        rootIsMax = isMax;
+        deadline = System.nanoTime() + budget.toNanos();
+        aborted = false;
+        rootMoveHint = null;
+        if (ordering != null) ordering.newSearch();
+        if (SearchStats.ENABLED) stats.start();
+        A bestMove = null;
+        int completedDepth = 0;
+        for (int depth = 1; depth <= MAX_SEARCH_DEPTH; depth++) {
+            timed = depth > 1;
+            ScoreMove<A> b = search(depth);
+            if (aborted) {
+                break;
+            }
+            bestMove = b.pathOfMoves().get(0);
+            rootMoveHint = bestMove;
+            completedDepth = depth;
+            if (!hitHorizon || System.nanoTime() - deadline > 0) {
+                // either the whole game tree fits within this depth, or no time is left
+                break;
+            }
+        }
+        if (SearchStats.ENABLED) stats.finish(completedDepth);
+        return bestMove;
+    }
+
+    /**
+     * Asks the search running on another thread to return as soon as
+     * possible, with the result of its last completed iteration if it is a
+     * timed search, or else null. Every later search of this instance
+     * returns right away as well, so that a stop can never be missed by a
+     * search that is just starting: search again with a new instance, which
+     * can share the transposition table.
+     */
+    public void stop(){
+        stopRequested = true;
+    }
+
+    /**
+     * Returns the score and the expected line of play found by the last
+     * search that ran to completion.
+     *
+     * @return the last result, or null if no search has completed yet
+     */
+    public ScoreMove<A> getLastResult(){
+        return lastResult;
+    }
+
+    /**
+     * Returns the statistics of the last search, including every iteration
+     * of a timed search. They are only collected while SearchStats.ENABLED.
+     *
+     * @return the statistics, updated in place by every search
+     */
+    public SearchStats getSearchStats(){
+        return stats;
+    }
+
+    /**
+     * Forgets every position cached in the transposition table, so that the
+     * next search does not depend on the previous ones.
+     */
+    public void clearTable(){
+        if (table != null) table.clear();
+    }
 
-        if(b.pathOfMoves() == null || b.pathOfMoves().isEmpty()){
+    /**
+     * Runs one search from the current state, with rootIsMax telling who is to move.
+     *
+     * @return the score and principal variation, or null if the search was aborted
+     */
+    private ScoreMove<A> search(int depthLimit){
+        if (stopRequested) {
+            aborted = true;
+            return null;
+        }
+        rootDepth = depthLimit;
+        // the passes of one search share hitHorizon: the result is as deep as the shallowest of them
+        hitHorizon = false;
+        nodeCount = 0;
+        ScoreMove<A> result;
+        if (driver == Driver.MTDF) {
+            result = mtdfSearch(lastResult == null ? 0 : lastResult.score());
+        } else if (driver == Driver.ASPIRATION && lastResult != null) {
+            result = aspirationSearch(lastResult.score());
+        } else {
+            result = searchWindow(Integer.MIN_VALUE, Integer.MAX_VALUE);
+        }
+        if (result != null) {
+            lastResult = result;
+        }
+        return result;
+    }
+
+    /**
+     * Searches the root with a window of guess +/- aspirationWindow. When the
+     * score falls outside, the window is widened on that side, by twice as
+     * much every time, around the bound just found, and the root is searched again.
+     */
+    private ScoreMove<A> aspirationSearch(int guess){
+        long delta = aspirationWindow;
+        long alpha = guess - delta;
+        long beta = guess + delta;
+        while (true) {
+            int a = (int) Math.max(alpha, Integer.MIN_VALUE);
+            int b = (int) Math.min(beta, Integer.MAX_VALUE);
+            ScoreMove<A> result = searchWindow(a, b);
+            if (result == null) {
+                return null;
+            }
+            if (result.score() <= a && a != Integer.MIN_VALUE) {
+                delta *= 2;
+                alpha = result.score() - delta;
+            } else if (result.score() >= b && b != Integer.MAX_VALUE) {
+                delta *= 2;
+                beta = result.score() + delta;
+            } else {
+                return result;
+            }
+            if (SearchStats.ENABLED) stats.research();
+        }
+    }
+
+    /**
+     * MTD(f): narrows the bounds of the score with null-window searches
+     * around the latest bound found, starting from guess, until they meet.
+     * Every pass searches mostly positions the previous ones left in the
+     * transposition table, so this is only efficient with the table enabled.
+     *
+     * The line of play is that of the last pass that proved the score
+     * reachable by the player to move (a fail high for MAX, a fail low for
+     * MIN): a pass that fails the other way only refutes every move.
+     */
+    private ScoreMove<A> mtdfSearch(int guess){
+        int score = guess;
+        long lower = Integer.MIN_VALUE;
+        long upper = Integer.MAX_VALUE;
+        List<A> line = null;
+        while (lower < upper) {
+            int beta = score == lower ? score + 1 : score;
+            ScoreMove<A> result = searchWindow(beta - 1, beta);
+            if (result == null) {
+                return null;
+            }
+            score = result.score();
+            if (score < beta) {
+                upper = score;
+                if (!rootIsMax) line = result.pathOfMoves();
+            } else {
+                lower = score;
+                if (rootIsMax) line = result.pathOfMoves();
+            }
+            if (lower < upper && SearchStats.ENABLED) stats.research();
+        }
+        return new ScoreMove<>(score, line);
+    }
+
+    /**
+     * Searches the root once with the given window.
+     *
+     * @return the score, exact only if strictly inside the window, and the
+     *         principal variation, or null if the search was aborted
+     */
+    private ScoreMove<A> searchWindow(int alpha, int beta){
+        int score = rootIsMax ? max(alpha, beta, rootDepth) : min(alpha, beta, rootDepth);
+        if (aborted) {
+            return null;
+        }
+        if (pv.length(0) == 0) {
             throw new IllegalStateException("No Valid moves found");
         }
-        return b.pathOfMoves().get(0);
+        return new ScoreMove<>(score, pv.line());
     }
 
     /**
-     * MAX node in the minimax tree. Returns the move path that maximizes utility.
+     * MAX node in the minimax tree.
      *
-     * @return best score and path of moves for the MAX player
+     * @return the best score for the MAX player; its line of play is left in the PV table
      */
-    public ScoreMove<A> max(int alpha, int beta, int depth) {
-        if (game.isTerminal() || depth == 0)
-            return new ScoreMove<>(game.utility(), List.of());
+    public int max(int alpha, int beta, int depth) {
+        if ((++nodeCount & CLOCK_CHECK_MASK) == 0
+                && (stopRequested || timed && System.nanoTime() - deadline > 0))
+            aborted = true;
+        if (aborted)
+            return 0;
+        int ply = rootDepth - depth;
+        pv.clear(ply);
+        if (SearchStats.ENABLED) stats.node(ply);
+        if (game.isTerminal()) {
+            if (SearchStats.ENABLED) stats.terminal(ply);
+            return game.utility();
+        }
+        if (depth == 0) {
+            if (SearchStats.ENABLED) stats.leaf(ply);
+            hitHorizon = true;
+            return evaluation == null ? game.utility() : evaluation.evaluate(game, true);
+        }
+
+        long key = 0;
+        long entry = TranspositionTable.MISS;
+        // symmetry mapping this position to the one whose entry it uses
+        int symmetry = 0;
+        if (table != null) {
+            if (symmetricGame != null) {
+                symmetry = symmetricGame.canonicalSymmetry();
+                key = symmetricGame.symmetricKey(symmetry) ^ MAX_TO_MOVE;
+            } else {
+                key = hashedGame.hashKey() ^ MAX_TO_MOVE;
+            }
+            entry = probe(key, depth);
+            // never cut off at the root: the caller needs a move
+            if (entry != TranspositionTable.MISS && depth < rootDepth
+                    && TranspositionTable.depth(entry) >= depth) {
+                int score = TranspositionTable.score(entry);
+                int bound = TranspositionTable.bound(entry);
+                if (bound == TranspositionTable.LOWER_BOUND) alpha = Math.max(alpha, score);
+                if (bound == TranspositionTable.UPPER_BOUND) beta = Math.min(beta, score);
+                if (bound == TranspositionTable.EXACT || alpha >= beta) {
+                    if (SearchStats.ENABLED) stats.tableHit(ply);
+                    hitHorizon |= TranspositionTable.depth(entry) != RESOLVED_DEPTH;
+                    return score;
+                }
+            }
+        }
+        int alphaOrig = alpha;
+        boolean parentHitHorizon = hitHorizon;
+        hitHorizon = false;
 
-        List<A> bestPath = null;
+        A bestMove = null;
         int  bestScore = Integer.MIN_VALUE;
 
-        for (A move : game.getAllRemainingMoves()) {
+        List<A> moves = game.getAllRemainingMoves();
+        int[] order = orderMoves(moves, entry, symmetry, depth, ply);
+        for (int i = 0; i < moves.size(); i++) {
+            A move = moves.get(order[i]);
             game.execute(move, true);
-            ScoreMove<A> response = min(alpha, beta, depth - 1);
+            int score = min(alpha, beta, depth - 1);
             game.undo(move, true);
+            if (aborted) {
+                return 0;
+            }
 
-            if (response.score > bestScore) {
-                bestScore = response.score;
-                bestPath  = new ArrayList<>(response.pathOfMoves());
-                bestPath.add(0, move);
+            if (score > bestScore) {
+                bestScore = score;
+                bestMove = move;
+                pv.update(ply, move);
             }
 
             alpha = Math.max(alpha, bestScore);
             if (alpha >= beta) {
-                // prune: we already recorded bestPath, so safe to break
+                // prune: we already recorded the best line, so safe to break
+                recordCutoff(move, ply, depth, i);
                 break;
             }
         }
 
-        return new ScoreMove<>(bestScore, bestPath != null ? bestPath : List.of());
+        if (table != null && bestMove != null) {
+            store(key, depth, boundOf(bestScore, alphaOrig, beta), bestScore, tableMoveId(bestMove, symmetry));
+        }
+        hitHorizon |= parentHitHorizon;
+        return bestScore;
     }
 
 
 
 
     /**
-     * MIN node in the minimax tree. Returns the move path that minimizes utility.
+     * MIN node in the minimax tree.
      *
-     * @return best score and path of moves for the MIN player
+     * @return the best score for the MIN player; its line of play is left in the PV table
      */
-    public ScoreMove<A> min(int alpha, int beta, int depth) {
-        if (game.isTerminal() || depth == 0)
-            return new ScoreMove<>(game.utility(), List.of());
+    public int min(int alpha, int beta, int depth) {
+        if ((++nodeCount & CLOCK_CHECK_MASK) == 0
+                && (stopRequested || timed && System.nanoTime() - deadline > 0))
+            aborted = true;
+        if (aborted)
+            return 0;
+        int ply = rootDepth - depth;
+        pv.clear(ply);
+        if (SearchStats.ENABLED) stats.node(ply);
+        if (game.isTerminal()) {
+            if (SearchStats.ENABLED) stats.terminal(ply);
+            return game.utility();
+        }
+        if (depth == 0) {
+            if (SearchStats.ENABLED) stats.leaf(ply);
+            hitHorizon = true;
+            return evaluation == null ? game.utility() : evaluation.evaluate(game, false);
+        }
 
-        List<A> bestPath = null;
+        long key = 0;
+        long entry = TranspositionTable.MISS;
+        // symmetry mapping this position to the one whose entry it uses
+        int symmetry = 0;
+        if (table != null) {
+            if (symmetricGame != null) {
+                symmetry = symmetricGame.canonicalSymmetry();
+                key = symmetricGame.symmetricKey(symmetry);
+            } else {
+                key = hashedGame.hashKey();
+            }
+            entry = probe(key, depth);
+            // never cut off at the root: the caller needs a move
+            if (entry != TranspositionTable.MISS && depth < rootDepth
+                    && TranspositionTable.depth(entry) >= depth) {
+                int score = TranspositionTable.score(entry);
+                int bound = TranspositionTable.bound(entry);
+                if (bound == TranspositionTable.LOWER_BOUND) alpha = Math.max(alpha, score);
+                if (bound == TranspositionTable.UPPER_BOUND) beta = Math.min(beta, score);
+                if (bound == TranspositionTable.EXACT || alpha >= beta) {
+                    if (SearchStats.ENABLED) stats.tableHit(ply);
+                    hitHorizon |= TranspositionTable.depth(entry) != RESOLVED_DEPTH;
+                    return score;
+                }
+            }
+        }
+        int betaOrig = beta;
+        boolean parentHitHorizon = hitHorizon;
+        hitHorizon = false;
+
+        A bestMove = null;
         int  bestScore = Integer.MAX_VALUE;
 
-        for (A move : game.getAllRemainingMoves()) {
+        List<A> moves = game.getAllRemainingMoves();
+        int[] order = orderMoves(moves, entry, symmetry, depth, ply);
+        for (int i = 0; i < moves.size(); i++) {
+            A move = moves.get(order[i]);
             game.execute(move, false);
-            ScoreMove<A> response = max(alpha, beta, depth - 1);
+            int score = max(alpha, beta, depth - 1);
             game.undo(move, false);
+            if (aborted) {
+                return 0;
+            }
 
-            if (response.score < bestScore) {
-                bestScore = response.score;
-                bestPath  = new ArrayList<>(response.pathOfMoves());
-                bestPath.add(0, move);
+            if (score < bestScore) {
+                bestScore = score;
+                bestMove = move;
+                pv.update(ply, move);
             }
 
             beta = Math.min(beta, bestScore);
             if (beta <= alpha) {
-                // prune with bestPath preserved
+                // prune with the best line preserved
+                recordCutoff(move, ply, depth, i);
                 break;
             }
         }
 
-        return new ScoreMove<>(bestScore, bestPath != null ? bestPath : List.of());
+        if (table != null && bestMove != null) {
+            store(key, depth, boundOf(bestScore, alpha, betaOrig), bestScore, tableMoveId(bestMove, symmetry));
+        }
+        hitHorizon |= parentHitHorizon;
+        return bestScore;
+    }
+
+    /**
+     * Finds the most promising move, which is searched first since it is the
+     * most likely to cause a cutoff: at the root, the best move of the previous
+     * iteration; elsewhere, the best move stored in the transposition table entry (if any).
+     *
+     * @param symmetry the symmetry the entry was looked up with
+     * @return the index of that move in moves, or -1 if there is none
+     */
+    private int firstMoveIndex(List<A> moves, long entry, int symmetry, int depth) {
+        boolean useHint = depth == rootDepth && rootMoveHint != null;
+        if (!useHint && entry == TranspositionTable.MISS) return -1;
+        int tableMove = TranspositionTable.move(entry);
+        if (!useHint && symmetry != 0) {
+            tableMove = symmetricGame.unmapMove(tableMove, symmetry);
+        }
+        for (int i = 0; i < moves.size(); i++) {
+            A move = moves.get(i);
+            if (useHint ? move.equals(rootMoveHint) : hashedGame.moveId(move) == tableMove) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Decides the order in which the moves of a node are searched: the move
+     * from firstMoveIndex comes first, then the others, sorted by the move
+     * ordering if there is one, or else in the order the game generated them.
+     *
+     * @return the indices of the moves in search order; the array is reused
+     *         for every node at the same ply and may be longer than moves
+     */
+    private int[] orderMoves(List<A> moves, long entry, int symmetry, int depth, int ply) {
+        int count = moves.size();
+        if (ply >= orderBuffers.length) {
+            int plies = Math.max(ply + 1, 2 * orderBuffers.length);
+            orderBuffers = Arrays.copyOf(orderBuffers, plies);
+            priorityBuffers = Arrays.copyOf(priorityBuffers, plies);
+        }
+        if (orderBuffers[ply] == null || orderBuffers[ply].length < count) {
+            orderBuffers[ply] = new int[count];
+            priorityBuffers[ply] = new int[count];
+        }
+        int[] order = orderBuffers[ply];
+        int[] priorities = priorityBuffers[ply];
+
+        int first = firstMoveIndex(moves, entry, symmetry, depth);
+        int sorted = 0;
+        if (first >= 0) {
+            order[sorted++] = first;
+        }
+        for (int i = 0; i < count; i++) {
+            if (i != first) order[sorted++] = i;
+        }
+        if (ordering == null || hashedGame == null) {
+            return order;
+        }
+
+        // stable insertion sort of every move but the first one, highest priority first
+        int start = first >= 0 ? 1 : 0;
+        for (int i = start; i < count; i++) {
+            int index = order[i];
+            int priority = ordering.priority(hashedGame.moveId(moves.get(index)), ply);
+            int j = i;
+            while (j > start && priorities[j - 1] < priority) {
+                order[j] = order[j - 1];
+                priorities[j] = priorities[j - 1];
+                j--;
+            }
+            order[j] = index;
+            priorities[j] = priority;
+        }
+        return order;
+    }
+
+    /**
+     * Looks up a position in the transposition table and, if it is missing
+     * or was searched less deeply than needed, in the persistent table.
+     * An entry found in the persistent table is copied into the transposition table.
+     */
+    private long probe(long key, int depth) {
+        long entry = table.probe(key);
+        if (persistentTable != null && depth >= PERSISTENT_MIN_DEPTH
+                && (entry == TranspositionTable.MISS || TranspositionTable.depth(entry) < depth)) {
+            long stored = persistentTable.probe(key);
+            if (stored != TranspositionTable.MISS && TranspositionTable.depth(stored) >= depth) {
+                table.store(key, TranspositionTable.depth(stored), TranspositionTable.bound(stored),
+                        TranspositionTable.score(stored), TranspositionTable.move(stored));
+                entry = stored;
+            }
+        }
+        return entry;
+    }
+
+    /**
+     * Stores the result of a node searched to the given depth; the subtree
+     * is recorded as resolved unless it reached the depth limit somewhere.
+     */
+    private void store(long key, int depth, int bound, int score, int moveId) {
+        int storedDepth = hitHorizon ? depth : RESOLVED_DEPTH;
+        table.store(key, storedDepth, bound, score, moveId);
+        if (persistentTable != null && depth >= PERSISTENT_MIN_DEPTH) {
+            persistentTable.store(key, storedDepth, bound, score, moveId);
+        }
+    }
+
+    /**
+     * Returns the id of a move as stored in the table: the id of its image
+     * on the board the entry belongs to.
+     */
+    private int tableMoveId(A move, int symmetry) {
+        int moveId = hashedGame.moveId(move);
+        return symmetry == 0 ? moveId : symmetricGame.mapMove(moveId, symmetry);
+    }
+
+    private void recordCutoff(A move, int ply, int depth, int moveNumber) {
+        if (SearchStats.ENABLED) stats.cutoff(ply, moveNumber);
+        if (ordering != null && hashedGame != null) {
+            ordering.cutoff(hashedGame.moveId(move), ply, depth, moveNumber);
+        }
+    }
+
+    /**
+     * Classifies a score returned by a search with the window (alpha, beta).
+     */
+    private static int boundOf(int score, int alpha, int beta) {
+        if (score <= alpha) return TranspositionTable.UPPER_BOUND;
+        if (score >= beta) return TranspositionTable.LOWER_BOUND;
+        return TranspositionTable.EXACT;
     }
 
 }
@@ -0,0 +1,535 @@
+package core_algorithms;
+
+import problems.Game;
+import problems.IntMoveGame;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Implements Monte Carlo Tree Search with the UCT selection rule: instead of
+ * a heuristic evaluation, positions are judged by the outcome of random
+ * games (playouts) played from them, and the tree grows towards the moves
+ * that win most often.
+ *
+ * Every iteration:
+ * - selects a leaf, from the root, by taking at every node the child with
+ *   the best upper confidence bound: win rate + c * sqrt(ln(N) / n)
+ * - expands the leaf, once it has been visited before, by adding one child
+ *   per move
+ * - plays random moves until the game is over; on an IntMoveGame the moves
+ *   are generated into an array, so a playout allocates nothing
+ * - adds the outcome to every node on the path: a win counts 1, a draw 1/2
+ *
+ * The tree is kept in flat arrays indexed by node (children of a node are
+ * contiguous), allocated once with a fixed capacity and recycled by every
+ * search: a new search just starts filling them again from the first node.
+ * When the tree is full, leaves are no longer expanded but still gain
+ * playouts.
+ *
+ * The search is tree-parallel: several threads descend the same tree, each
+ * on its own copy of the game. Counters are updated with atomic adds only,
+ * and a thread claims a leaf to expand with a compare-and-set, so no lock
+ * is taken. A thread passing through a node adds a virtual loss to it (a
+ * few visits that won nothing) until its playout is counted, which steers
+ * the other threads towards other moves.
+ *
+ * A playout ends the game, so the outcome is read from the utility of the
+ * final position: the game is won by X (MAX) when it is at least winScore,
+ * by O (MIN) when it is at most -winScore, and drawn otherwise.
+ *
+ * @param <A> the type representing a move or action in the game
+ */
+public class MonteCarloTreeSearch<A> implements AutoCloseable {
+    // Default capacity of the tree: about 24 MB
+    public static final int DEFAULT_MAX_NODES = 1 << 20;
+    // Default weight of the exploration term of UCT: sqrt(2)
+    public static final double DEFAULT_EXPLORATION = Math.sqrt(2);
+    // Visits that win nothing added to a node while a thread is below it
+    private static final int VIRTUAL_LOSS = 3;
+    // A leaf is expanded once it has been visited this many times
+    private static final int EXPANSION_VISITS = 1;
+    // Values of firstChild for a node that has no children yet
+    private static final int UNEXPANDED = -1;
+    private static final int EXPANDING = -2;
+    // The node will never have children: the game is over, or the tree was full
+    private static final int NO_CHILDREN = -3;
+    private static final int ROOT = 0;
+
+    private final Game<A> game;
+    private final int winScore;
+    private final int threads;
+    private final ExecutorService pool;
+    private double exploration = DEFAULT_EXPLORATION;
+
+    // The tree, indexed by node: the first child (or one of the values above),
+    // the number of children, the move leading to the node, visits, and
+    // rewards in half points (2 per win, 1 per draw) for the player who made that move
+    private final AtomicIntegerArray firstChild;
+    private final int[] childCount;
+    private final Object[] moves;
+    private final AtomicIntegerArray visits;
+    private final AtomicLongArray rewards;
+    // Number of nodes in use
+    private final AtomicInteger nodeCount = new AtomicInteger();
+
+    // The current search: who is to move at the root, and when to stop
+    // (remainingPlayouts is only counted down when playoutLimited)
+    private boolean rootIsMax;
+    private long deadline;
+    private boolean playoutLimited;
+    private final AtomicLong remainingPlayouts = new AtomicLong();
+    private final AtomicLong playouts = new AtomicLong();
+    private long elapsedNanos;
+    // Set when the caller is interrupted, to make the workers return
+    private volatile boolean stopped;
+
+    /**
+     * @param game     the game to search; it is copied, never modified, by the search
+     * @param winScore the smallest utility of a won game (see the class comment)
+     * @param threads  the number of threads searching the tree
+     */
+    public MonteCarloTreeSearch(Game<A> game, int winScore, int threads) {
+        this(game, winScore, threads, DEFAULT_MAX_NODES);
+    }
+
+    /**
+     * @param game     the game to search; it is copied, never modified, by the search
+     * @param winScore the smallest utility of a won game (see the class comment)
+     * @param threads  the number of threads searching the tree
+     * @param maxNodes the capacity of the tree
+     */
+    public MonteCarloTreeSearch(Game<A> game, int winScore, int threads, int maxNodes) {
+        if (threads < 1) {
+            throw new IllegalArgumentException("At least one thread is needed: " + threads);
+        }
+        if (maxNodes < 2) {
+            throw new IllegalArgumentException("The tree needs room for at least 2 nodes: " + maxNodes);
+        }
+        this.game = game;
+        this.winScore = winScore;
+        this.threads = threads;
+        this.pool = Executors.newFixedThreadPool(threads, Thread.ofPlatform().daemon().name("mcts-", 0).factory());
+        this.firstChild = new AtomicIntegerArray(maxNodes);
+        this.childCount = new int[maxNodes];
+        this.moves = new Object[maxNodes];
+        this.visits = new AtomicIntegerArray(maxNodes);
+        this.rewards = new AtomicLongArray(maxNodes);
+    }
+
+    /**
+     * Sets the weight of the exploration term of UCT: higher values spread
+     * the playouts over more moves, lower values focus on the best ones.
+     *
+     * @param exploration the weight; DEFAULT_EXPLORATION by default
+     */
+    public void setExploration(double exploration) {
+        this.exploration = exploration;
+    }
+
+    /**
+     * Searches until the time budget runs out and returns the best move for
+     * the MIN player (i.e., AI).
+     */
+    public A monteCarloSearch(Duration budget) {
+        return monteCarloSearch(budget, false);
+    }
+
+    /**
+     * Searches until the time budget runs out.
+     *
+     * @param budget the wall-clock time allowed for the search
+     * @param isMax  true if MAX is to move, false if MIN is
+     * @return the most visited move of the player to move,
+     *         or null if the calling thread was interrupted
+     */
+    public A monteCarloSearch(Duration budget, boolean isMax) {
+        deadline = System.nanoTime() + budget.toNanos();
+        playoutLimited = false;
+        return search(isMax);
+    }
+
+    /**
+     * Searches a fixed number of playouts and returns the best move for the
+     * MIN player (i.e., AI).
+     */
+    public A monteCarloSearch(long playoutBudget) {
+        return monteCarloSearch(playoutBudget, false);
+    }
+
+    /**
+     * Searches a fixed number of playouts, shared by all the threads.
+     *
+     * @param playoutBudget the number of playouts
+     * @param isMax         true if MAX is to move, false if MIN is
+     * @return the most visited move of the player to move,
+     *         or null if the calling thread was interrupted
+     */
+    public A monteCarloSearch(long playoutBudget, boolean isMax) {
+        // far enough in the future to never expire, close enough not to overflow
+        deadline = System.nanoTime() + Long.MAX_VALUE / 2;
+        playoutLimited = true;
+        remainingPlayouts.set(playoutBudget);
+        return search(isMax);
+    }
+
+    /**
+     * @return the number of playouts of the last search
+     */
+    public long getPlayouts() {
+        return playouts.get();
+    }
+
+    public Duration getElapsed() {
+        return Duration.ofNanos(elapsedNanos);
+    }
+
+    public double getPlayoutsPerSecond() {
+        return elapsedNanos == 0 ? 0 : playouts.get() * 1e9 / elapsedNanos;
+    }
+
+    /**
+     * @return the number of nodes of the tree built by the last search
+     */
+    public int getTreeSize() {
+        return Math.min(nodeCount.get(), visits.length());
+    }
+
+    /**
+     * Returns the share of the playouts through a move of the root that its
+     * player won, draws counting half, in the last search.
+     *
+     * @param move a move of the player to move at the root
+     * @return the win rate, or -1 if the move was not searched
+     */
+    public double getWinRate(A move) {
+        int first = firstChild.get(ROOT);
+        for (int child = first; first >= 0 && child < first + childCount[ROOT]; child++) {
+            if (moves[child].equals(move)) {
+                int n = visits.get(child);
+                return n == 0 ? -1 : rewards.get(child) / (2.0 * n);
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Shuts down the worker threads.
+     */
+    @Override
+    public void close() {
+        pool.shutdown();
+    }
+
+    private A search(boolean isMax) {
+        if (game.isTerminal()) {
+            throw new IllegalStateException("No Valid moves found");
+        }
+        rootIsMax = isMax;
+        playouts.set(0);
+        initNode(ROOT, null);
+        nodeCount.set(1);
+        stopped = false;
+        long start = System.nanoTime();
+        // counted down by every worker as it returns; the pool has a thread for each, so all of them run
+        CountDownLatch finished = new CountDownLatch(threads);
+        List<Future<Void>> workers = new ArrayList<>(threads);
+        for (int i = 0; i < threads; i++) {
+            workers.add(pool.submit(new Worker(game.copy(), new SplittableRandom(i), finished)));
+        }
+        // when interrupted, stop the workers but still wait for them:
+        // the next search reuses the tree they are writing to
+        boolean interrupted = false;
+        while (true) {
+            try {
+                finished.await();
+                break;
+            } catch (InterruptedException e) {
+                interrupted = true;
+                stopped = true;
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+            return null;
+        }
+        for (Future<Void> worker : workers) {
+            try {
+                worker.get();
+            } catch (ExecutionException e) {
+                throw new IllegalStateException("Search failed", e.getCause());
+            } catch (InterruptedException e) {
+                // not reached: every worker is done
+                Thread.currentThread().interrupt();
+                return null;
+            }
+        }
+        elapsedNanos = System.nanoTime() - start;
+        return bestMove();
+    }
+
+    /**
+     * @return the move of the most visited child of the root
+     */
+    @SuppressWarnings("unchecked")
+    private A bestMove() {
+        int first = firstChild.get(ROOT);
+        if (first < 0) {
+            throw new IllegalStateException("The search did not expand the root");
+        }
+        int best = first;
+        for (int child = first + 1; child < first + childCount[ROOT]; child++) {
+            if (visits.get(child) > visits.get(best)) best = child;
+        }
+        return (A) moves[best];
+    }
+
+    /**
+     * Adds the children of a leaf, unless the game is over there, the tree
+     * is full, or another thread is expanding it.
+     *
+     * @return the first child, or a negative value if the leaf has no children (yet)
+     */
+    private int expand(int node, Game<A> state) {
+        if (!firstChild.compareAndSet(node, UNEXPANDED, EXPANDING)) {
+            return firstChild.get(node);
+        }
+        if (state.isTerminal()) {
+            firstChild.set(node, NO_CHILDREN);
+            return NO_CHILDREN;
+        }
+        List<A> children = state.getAllRemainingMoves();
+        // once the tree is full, stop counting, so that nodeCount cannot overflow
+        int first = nodeCount.get() + children.size() > visits.length()
+                ? visits.length() : nodeCount.getAndAdd(children.size());
+        if (first + children.size() > visits.length()) {
+            firstChild.set(node, NO_CHILDREN);
+            return NO_CHILDREN;
+        }
+        for (int i = 0; i < children.size(); i++) {
+            initNode(first + i, children.get(i));
+        }
+        childCount[node] = children.size();
+        // publishes the children: readers of firstChild see them initialized
+        firstChild.set(node, first);
+        return first;
+    }
+
+    private void initNode(int node, A move) {
+        firstChild.set(node, UNEXPANDED);
+        childCount[node] = 0;
+        moves[node] = move;
+        visits.set(node, 0);
+        rewards.set(node, 0);
+    }
+
+    /**
+     * @return the child with the best upper confidence bound; unvisited children first
+     */
+    private int select(int node, int first) {
+        double logVisits = Math.log(Math.max(1, visits.get(node)));
+        int best = first;
+        double bestValue = Double.NEGATIVE_INFINITY;
+        for (int child = first; child < first + childCount[node]; child++) {
+            int n = visits.get(child);
+            if (n == 0) {
+                return child;
+            }
+            double value = rewards.get(child) / (2.0 * n) + exploration * Math.sqrt(logVisits / n);
+            if (value > bestValue) {
+                bestValue = value;
+                best = child;
+            }
+        }
+        return best;
+    }
+
+    /**
+     * @return +1 if X (MAX) won the finished game, -1 if O (MIN) won, 0 for a draw
+     */
+    private int outcome(int utility) {
+        if (utility >= winScore) return 1;
+        if (utility <= -winScore) return -1;
+        return 0;
+    }
+
+    /**
+     * Searches the tree on one thread, with its own copy of the game.
+     */
+    private final class Worker implements Callable<Void> {
+        private final Game<A> state;
+        private final Playout playout;
+        private final int virtualLoss = threads > 1 ? VIRTUAL_LOSS : 0;
+        // Nodes from the root to the current leaf, and the moves between them
+        private int[] path = new int[64];
+        private final List<A> played = new ArrayList<>();
+        private final CountDownLatch finished;
+
+        Worker(Game<A> state, SplittableRandom random, CountDownLatch finished) {
+            this.state = state;
+            this.finished = finished;
+            this.playout = state instanceof IntMoveGame intGame
+                    ? new IntPlayout(intGame, random)
+                    : new ListPlayout(state, random);
+        }
+
+        /**
+         * Runs iterations until the budget is spent.
+         */
+        @Override
+        public Void call() {
+            long count = 0;
+            try {
+                while (System.nanoTime() - deadline < 0 && !stopped
+                        && (!playoutLimited || remainingPlayouts.getAndDecrement() > 0)) {
+                    iterate();
+                    count++;
+                }
+                playouts.addAndGet(count);
+                return null;
+            } finally {
+                finished.countDown();
+            }
+        }
+
+        /**
+         * One iteration: selection, expansion, playout and backpropagation.
+         */
+        @SuppressWarnings("unchecked")
+        private void iterate() {
+            int node = ROOT;
+            int depth = 0;
+            boolean isMax = rootIsMax;
+            path[0] = ROOT;
+            visits.addAndGet(ROOT, virtualLoss);
+            while (true) {
+                int first = firstChild.get(node);
+                if (first == UNEXPANDED && (node == ROOT || visits.get(node) - virtualLoss >= EXPANSION_VISITS)) {
+                    first = expand(node, state);
+                }
+                if (first < 0) {
+                    break;
+                }
+                node = select(node, first);
+                A move = (A) moves[node];
+                state.execute(move, isMax);
+                played.add(move);
+                isMax = !isMax;
+                if (++depth == path.length) {
+                    path = Arrays.copyOf(path, 2 * depth);
+                }
+                path[depth] = node;
+                visits.addAndGet(node, virtualLoss);
+            }
+
+            int outcome = playout.run(isMax);
+            for (int i = played.size() - 1; i >= 0; i--) {
+                isMax = !isMax;
+                state.undo(played.get(i), isMax);
+            }
+            played.clear();
+
+            // the move into the node at depth d was made by the root player when d is odd
+            for (int d = depth; d >= 0; d--) {
+                boolean moverIsMax = (d % 2 == 1) == rootIsMax;
+                int reward = outcome == 0 ? 1 : (outcome > 0) == moverIsMax ? 2 : 0;
+                visits.addAndGet(path[d], 1 - virtualLoss);
+                rewards.addAndGet(path[d], reward);
+            }
+        }
+    }
+
+    /**
+     * Plays random moves until the game is over, then takes them back.
+     */
+    private interface Playout {
+        /**
+         * @param isMax true if MAX is to move
+         * @return the outcome, see outcome
+         */
+        int run(boolean isMax);
+    }
+
+    /**
+     * Playout over the int moves of an IntMoveGame, without allocating.
+     */
+    private final class IntPlayout implements Playout {
+        private final IntMoveGame state;
+        private final SplittableRandom random;
+        private final int[] buffer;
+        private int[] played = new int[64];
+
+        IntPlayout(IntMoveGame state, SplittableRandom random) {
+            this.state = state;
+            this.random = random;
+            this.buffer = new int[state.moveIdCount()];
+        }
+
+        @Override
+        public int run(boolean isMax) {
+            int count = 0;
+            boolean toMove = isMax;
+            while (!state.isTerminal()) {
+                int move = buffer[random.nextInt(state.generateMoves(buffer))];
+                state.execute(move, toMove);
+                if (count == played.length) {
+                    played = Arrays.copyOf(played, 2 * count);
+                }
+                played[count++] = move;
+                toMove = !toMove;
+            }
+            int outcome = outcome(state.utility());
+            while (count > 0) {
+                toMove = !toMove;
+                state.undo(played[--count], toMove);
+            }
+            return outcome;
+        }
+    }
+
+    /**
+     * Playout over the move lists of any Game.
+     */
+    private final class ListPlayout implements Playout {
+        private final Game<A> state;
+        private final SplittableRandom random;
+        private final List<A> played = new ArrayList<>();
+
+        ListPlayout(Game<A> state, SplittableRandom random) {
+            this.state = state;
+            this.random = random;
+        }
+
+        @Override
+        public int run(boolean isMax) {
+            boolean toMove = isMax;
+            while (!state.isTerminal()) {
+                List<A> options = state.getAllRemainingMoves();
+                A move = options.get(random.nextInt(options.size()));
+                state.execute(move, toMove);
+                played.add(move);
+                toMove = !toMove;
+            }
+            int outcome = outcome(state.utility());
+            for (int i = played.size() - 1; i >= 0; i--) {
+                toMove = !toMove;
+                state.undo(played.get(i), toMove);
+            }
+            played.clear();
+            return outcome;
+        }
+    }
+}
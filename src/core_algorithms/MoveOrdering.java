@@ -0,0 +1,36 @@
+package core_algorithms;
+
+/**
+ * Decides in which order a search tries the moves of a position.
+ * Alpha-beta prunes the most when the best move is tried first, so an
+ * ordering typically learns from the moves that caused cutoffs.
+ *
+ * Moves are identified by their id (see problems.HashedGame#moveId), and
+ * positions by their ply, i.e., the number of moves played since the root.
+ */
+public interface MoveOrdering {
+    /**
+     * Called when a new search starts from a new root.
+     */
+    void newSearch();
+
+    /**
+     * Rates a move; moves with a higher priority are tried first, and moves
+     * with the same priority keep the order the game generated them in.
+     *
+     * @param moveId the id of the move
+     * @param ply    the ply of the position the move is played from
+     * @return the priority of the move
+     */
+    int priority(int moveId, int ply);
+
+    /**
+     * Called when a move produced a beta cutoff.
+     *
+     * @param moveId     the id of the move
+     * @param ply        the ply of the position the move was played from
+     * @param depth      the remaining depth of that position
+     * @param moveNumber the position of the move in the search order (0 = first)
+     */
+    void cutoff(int moveId, int ply, int depth, int moveNumber);
+}
@@ -0,0 +1,190 @@
+package core_algorithms;
+
+import problems.Game;
+import problems.HashedGame;
+
+import java.util.List;
+
+/**
+ * Implements Principal Variation Search (PVS), a variant of alpha-beta
+ * written in negamax form: every node maximizes its own score, which is
+ * the utility seen from the side to move (utility for MAX, -utility for MIN).
+ *
+ * The first move of a node is searched with the full (alpha, beta) window.
+ * Every later move is only tested with a zero-width window (alpha, alpha + 1),
+ * which is much cheaper and enough to prove that the move is no better than
+ * the first one. Only when that test fails high is the move searched again
+ * with the full window. This pays off when the best move usually comes first,
+ * so searches are deepened one ply at a time and each iteration orders moves
+ * from the transposition table filled by the previous one.
+ *
+ * Assumptions:
+ * - Human is the MAX player
+ * - AI is the MIN player
+ *
+ * @param <A> the type representing a move or action in the game
+ */
+public class NegamaxPVS<A> {
+    // Larger than any utility; kept away from Integer.MIN_VALUE so that it can be negated
+    private static final int INFINITY = Integer.MAX_VALUE;
+    // Mixed into the hash key when MAX is to move, so both sides get separate entries
+    private static final long MAX_TO_MOVE = 0x9E3779B97F4A7C15L;
+
+    protected final Game<A> game;
+    // The same game seen as hashable, or null when it does not support hashing
+    private final HashedGame<A> hashedGame;
+    // null when the transposition table is disabled
+    private final TranspositionTable table;
+    // Best line found at every ply of the current search
+    private final PrincipalVariation<A> pv = new PrincipalVariation<>();
+    // Number of positions visited by the last search
+    private long nodeCount;
+
+    /**
+     * Record to store the score of a game state and the path of moves leading to it.
+     *
+     * @param score utility of the line for the MAX player, as in MinimaxPrune
+     */
+    public record ScoreMove<A> (int score, List<A> pathOfMoves){}
+
+    public NegamaxPVS(Game<A> game) {
+        this(game, MinimaxPrune.DEFAULT_TABLE_BYTES);
+    }
+
+    /**
+     * @param game       the game to search
+     * @param tableBytes memory budget of the transposition table in bytes;
+     *                   0 disables the table. Ignored if the game is not a HashedGame.
+     */
+    public NegamaxPVS(Game<A> game, long tableBytes) {
+        this.game = game;
+        if (game instanceof HashedGame<A> hashed && tableBytes > 0) {
+            this.hashedGame = hashed;
+            this.table = new TranspositionTable(tableBytes);
+        } else {
+            this.hashedGame = null;
+            this.table = null;
+        }
+    }
+
+    /**
+     * Performs a search and returns the best move for the AI (the MIN player).
+     *
+     * @return the first move on the path to the best outcome for the MIN player
+     */
+    public A minimaxSearch(int depthLimit) {
+        return search(depthLimit, false).pathOfMoves().get(0);
+    }
+
+    /**
+     * Searches the current state to the given depth.
+     *
+     * @param depthLimit maximum number of moves to look ahead
+     * @param isMax      true if the MAX player is to move, false for MIN
+     * @return the minimax score (for MAX) and the expected line of play
+     */
+    public ScoreMove<A> search(int depthLimit, boolean isMax) {
+        nodeCount = 0;
+        int sign = isMax ? 1 : -1;
+        int score = 0;
+        // Shallower iterations are cheap and fill the table with the moves to try first
+        int firstDepth = table != null ? 1 : depthLimit;
+        for (int depth = firstDepth; depth <= depthLimit; depth++) {
+            score = pvs(-INFINITY, INFINITY, depth, 0, isMax);
+        }
+        if (pv.length(0) == 0) {
+            throw new IllegalStateException("No Valid moves found");
+        }
+        return new ScoreMove<>(sign * score, pv.line());
+    }
+
+    /**
+     * @return the number of positions visited by the last search
+     */
+    public long getNodeCount() {
+        return nodeCount;
+    }
+
+    /**
+     * Negamax node.
+     *
+     * @param isMax true if the MAX player is to move
+     * @return the score of the position for the side to move
+     */
+    private int pvs(int alpha, int beta, int depth, int ply, boolean isMax) {
+        nodeCount++;
+        pv.clear(ply);
+        if (game.isTerminal() || depth == 0)
+            return isMax ? game.utility() : -game.utility();
+
+        long key = 0;
+        long entry = TranspositionTable.MISS;
+        if (table != null) {
+            key = isMax ? hashedGame.hashKey() ^ MAX_TO_MOVE : hashedGame.hashKey();
+            entry = table.probe(key);
+            // never cut off at the root: the caller needs a move
+            if (entry != TranspositionTable.MISS && ply > 0 && TranspositionTable.depth(entry) >= depth) {
+                int score = TranspositionTable.score(entry);
+                int bound = TranspositionTable.bound(entry);
+                if (bound == TranspositionTable.LOWER_BOUND) alpha = Math.max(alpha, score);
+                if (bound == TranspositionTable.UPPER_BOUND) beta = Math.min(beta, score);
+                if (bound == TranspositionTable.EXACT || alpha >= beta) return score;
+            }
+        }
+        int alphaOrig = alpha;
+
+        A bestMove = null;
+        int bestScore = -INFINITY;
+
+        List<A> moves = game.getAllRemainingMoves();
+        int first = firstMoveIndex(moves, entry);
+        for (int i = 0; i < moves.size(); i++) {
+            A move = moves.get(i == 0 ? first : (i <= first ? i - 1 : i));
+            game.execute(move, isMax);
+            int score;
+            if (i == 0) {
+                score = -pvs(-beta, -alpha, depth - 1, ply + 1, !isMax);
+            } else {
+                // zero-window test: is this move better than alpha at all?
+                score = -pvs(-alpha - 1, -alpha, depth - 1, ply + 1, !isMax);
+                if (score > alpha && score < beta) {
+                    // it is: find out by how much
+                    score = -pvs(-beta, -alpha, depth - 1, ply + 1, !isMax);
+                }
+            }
+            game.undo(move, isMax);
+
+            if (score > bestScore) {
+                bestScore = score;
+                bestMove = move;
+                if (score > alpha) {
+                    alpha = score;
+                    pv.update(ply, move);
+                }
+            }
+            if (alpha >= beta) {
+                break;
+            }
+        }
+
+        if (table != null && bestMove != null) {
+            int bound = bestScore <= alphaOrig ? TranspositionTable.UPPER_BOUND
+                    : bestScore >= beta ? TranspositionTable.LOWER_BOUND
+                    : TranspositionTable.EXACT;
+            table.store(key, depth, bound, bestScore, hashedGame.moveId(bestMove));
+        }
+        return bestScore;
+    }
+
+    /**
+     * @return the index of the best move stored in the transposition table entry, or 0 if there is none
+     */
+    private int firstMoveIndex(List<A> moves, long entry) {
+        if (entry == TranspositionTable.MISS) return 0;
+        int tableMove = TranspositionTable.move(entry);
+        for (int i = 1; i < moves.size(); i++) {
+            if (hashedGame.moveId(moves.get(i)) == tableMove) return i;
+        }
+        return 0;
+    }
+}
@@ -0,0 +1,230 @@
+package core_algorithms;
+
+import problems.Game;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Implements Minimax search with alpha-beta pruning on several threads,
+ * using the "Young Brothers Wait" scheme on a ForkJoinPool:
+ * - the first move of a node (the eldest brother) is searched serially,
+ *   which usually narrows the alpha-beta window
+ * - the remaining moves (the young brothers) are then searched in parallel,
+ *   each on its own copy of the game, with that narrowed window
+ * When a young brother produces a cutoff, its siblings are told to stop.
+ *
+ * The search visits the moves in the same order and breaks ties the same
+ * way as MinimaxPrune without a transposition table, so at equal depth it
+ * returns the same score and the same move.
+ *
+ * Assumptions:
+ * - Human is the MAX player
+ * - AI is the MIN player
+ *
+ * @param <A> the type representing a move or action in the game
+ */
+public class ParallelMinimaxPrune<A> implements AutoCloseable {
+    // Nodes with less remaining depth are searched serially:
+    // copying the game and forking would cost more than it saves
+    private static final int MIN_SPLIT_DEPTH = 3;
+
+    private final Game<A> game;
+    private final ForkJoinPool pool;
+
+    /**
+     * @param game    the game to search; it is copied, never modified, by the search
+     * @param threads number of worker threads
+     */
+    public ParallelMinimaxPrune(Game<A> game, int threads) {
+        this.game = game;
+        this.pool = new ForkJoinPool(threads);
+    }
+
+    /**
+     * Performs a parallel minimax search and returns the best move for the current player.
+     *
+     * @return the first move on the path to the best outcome for the MIN player (i.e., AI)
+     */
+    public A minimaxSearch(int depthLimit) {
+        return pool.invoke(ForkJoinTask.adapt(() -> searchRoot(game.copy(), depthLimit)));
+    }
+
+    /**
+     * Shuts down the worker threads.
+     */
+    @Override
+    public void close() {
+        pool.shutdown();
+    }
+
+    /**
+     * MIN node at the root: same as search, but keeps track of the best move.
+     */
+    private A searchRoot(Game<A> state, int depth) {
+        if (state.isTerminal() || depth == 0) {
+            throw new IllegalStateException("No Valid moves found");
+        }
+        List<A> moves = state.getAllRemainingMoves();
+        A eldest = moves.get(0);
+        state.execute(eldest, false);
+        int bestScore = search(state, true, Integer.MIN_VALUE, Integer.MAX_VALUE, depth - 1, null);
+        state.undo(eldest, false);
+        A bestMove = eldest;
+
+        // The root has a full window, so it never cuts off: every brother completes
+        List<Brother> brothers = forkBrothers(state, moves, false, Integer.MIN_VALUE, bestScore, depth, null);
+        for (int i = 0; i < brothers.size(); i++) {
+            int score = brothers.get(i).join();
+            if (score < bestScore) {
+                bestScore = score;
+                bestMove = moves.get(i + 1);
+            }
+        }
+        return bestMove;
+    }
+
+    /**
+     * Searches the given state. Nodes deep enough in the tree are split
+     * between threads once their eldest brother has been searched.
+     *
+     * @param splitPoint the split point this subtree belongs to, or null
+     *                   if it is searched by the root thread only
+     * @return the score of the state; meaningless if the split point was stopped
+     */
+    private int search(Game<A> state, boolean isMax, int alpha, int beta, int depth, SplitPoint splitPoint) {
+        if (SplitPoint.isStopped(splitPoint))
+            return 0;
+        if (state.isTerminal() || depth == 0)
+            return state.utility();
+
+        List<A> moves = state.getAllRemainingMoves();
+        int bestScore = isMax ? Integer.MIN_VALUE : Integer.MAX_VALUE;
+        int serialMoves = depth >= MIN_SPLIT_DEPTH ? 1 : moves.size();
+
+        for (int i = 0; i < serialMoves; i++) {
+            A move = moves.get(i);
+            state.execute(move, isMax);
+            int score = search(state, !isMax, alpha, beta, depth - 1, splitPoint);
+            state.undo(move, isMax);
+            if (SplitPoint.isStopped(splitPoint))
+                return 0;
+
+            if (isMax) {
+                bestScore = Math.max(bestScore, score);
+                alpha = Math.max(alpha, bestScore);
+            } else {
+                bestScore = Math.min(bestScore, score);
+                beta = Math.min(beta, bestScore);
+            }
+            if (alpha >= beta)
+                return bestScore;
+        }
+        if (serialMoves == moves.size())
+            return bestScore;
+
+        SplitPoint brothersSplit = new SplitPoint(splitPoint);
+        List<Brother> brothers = forkBrothers(state, moves, isMax, alpha, beta, depth, brothersSplit);
+        for (Brother brother : brothers) {
+            brother.join();
+        }
+        if (SplitPoint.isStopped(splitPoint))
+            return 0;
+        if (brothersSplit.stopped)
+            // one brother produced a cutoff; the others may have been interrupted
+            return brothersSplit.cutoffScore;
+
+        for (Brother brother : brothers) {
+            int score = brother.join();
+            bestScore = isMax ? Math.max(bestScore, score) : Math.min(bestScore, score);
+        }
+        return bestScore;
+    }
+
+    /**
+     * Searches every move but the first in parallel, each on its own copy of the state.
+     * The tasks are forked, and must be joined by the caller.
+     */
+    private List<Brother> forkBrothers(Game<A> state, List<A> moves, boolean isMax,
+                                       int alpha, int beta, int depth, SplitPoint splitPoint) {
+        List<Brother> brothers = new ArrayList<>(moves.size() - 1);
+        for (int i = 1; i < moves.size(); i++) {
+            Game<A> copy = state.copy();
+            copy.execute(moves.get(i), isMax);
+            brothers.add(new Brother(copy, isMax, alpha, beta, depth - 1, splitPoint));
+        }
+        for (int i = brothers.size() - 1; i > 0; i--) {
+            brothers.get(i).fork();
+        }
+        if (!brothers.isEmpty()) {
+            // search one brother on this thread instead of waiting idle
+            brothers.get(0).invoke();
+        }
+        return brothers;
+    }
+
+    /**
+     * A node whose young brothers are being searched in parallel. Stopping a
+     * split point stops every search below it.
+     */
+    private static final class SplitPoint {
+        private final SplitPoint parent;
+        private volatile boolean stopped;
+        // Score of the brother that caused the cutoff; written before stopped is set
+        private int cutoffScore;
+
+        SplitPoint(SplitPoint parent) {
+            this.parent = parent;
+        }
+
+        synchronized void stop(int score) {
+            if (!stopped) {
+                cutoffScore = score;
+                stopped = true;
+            }
+        }
+
+        static boolean isStopped(SplitPoint splitPoint) {
+            for (SplitPoint s = splitPoint; s != null; s = s.parent) {
+                if (s.stopped) return true;
+            }
+            return false;
+        }
+    }
+
+    /**
+     * Searches one young brother, i.e., the position after one of the moves of
+     * a split node, and stops its siblings if it produces a cutoff.
+     */
+    @SuppressWarnings("serial")
+    private final class Brother extends RecursiveTask<Integer> {
+        private final Game<A> state;
+        private final boolean parentIsMax;
+        private final int alpha;
+        private final int beta;
+        private final int depth;
+        private final SplitPoint splitPoint;
+
+        Brother(Game<A> state, boolean parentIsMax, int alpha, int beta, int depth, SplitPoint splitPoint) {
+            this.state = state;
+            this.parentIsMax = parentIsMax;
+            this.alpha = alpha;
+            this.beta = beta;
+            this.depth = depth;
+            this.splitPoint = splitPoint;
+        }
+
+        @Override
+        protected Integer compute() {
+            int score = search(state, !parentIsMax, alpha, beta, depth, splitPoint);
+            if (splitPoint != null && !SplitPoint.isStopped(splitPoint)
+                    && (parentIsMax ? score >= beta : score <= alpha)) {
+                splitPoint.stop(score);
+            }
+            return score;
+        }
+    }
+}
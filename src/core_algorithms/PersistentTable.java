@@ -0,0 +1,237 @@
+package core_algorithms;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * A transposition table kept in a file, so that search results survive
+ * restarts of the program (see MinimaxPrune#setPersistentTable).
+ *
+ * The file has a fixed layout and is memory-mapped: opening it reads only
+ * the header, and entries are paged in from disk as they are probed, so
+ * startup does not depend on the size of the file and nothing is copied
+ * onto the heap.
+ *
+ * Stores are collected in a batch on the heap and written to the mapping
+ * when the batch is full or on flush; flush and close also force the
+ * mapped pages to disk. Like TranspositionTable, the file is split into
+ * buckets of a depth-preferred and an always-replaced slot, and entries
+ * are packed the same way, so score, depth, bound and move decode them.
+ *
+ * The file stays consistent if the program is killed at any point: the
+ * header is written once, to a temporary file that is then renamed, and
+ * the first long of every slot is the key XOR-ed with the entry, which
+ * doubles as a checksum. A slot whose two longs were not both written
+ * fails to match any key and reads as a miss.
+ *
+ * File layout (big-endian):
+ * - header (HEADER_BYTES): magic number, format version (2 ints), the hash
+ *   of the tag naming the game (a long), the number of slots (a long)
+ * - slots of 16 bytes: key XOR entry, then entry (2 longs); all zero when empty
+ */
+public class PersistentTable implements AutoCloseable {
+    private static final int MAGIC = 0x50545442;
+    private static final int VERSION = 1;
+    private static final int HEADER_BYTES = 32;
+    private static final int SLOT_BYTES = 16;
+    // A mapped buffer is at most 2 GB; 2^26 slots use 1 GB
+    private static final long MAX_SLOTS = 1L << 26;
+    // Number of stores collected before they are written to the mapping
+    private static final int BATCH_SIZE = 4096;
+
+    private final Path file;
+    private final FileChannel channel;
+    private final MappedByteBuffer buffer;
+    private final int bucketMask;
+    // Stores not yet written to the mapping
+    private final long[] batchKeys = new long[BATCH_SIZE];
+    private final long[] batchEntries = new long[BATCH_SIZE];
+    private int batchCount;
+
+    private PersistentTable(Path file, FileChannel channel, MappedByteBuffer buffer, long slots) {
+        this.file = file;
+        this.channel = channel;
+        this.buffer = buffer;
+        this.bucketMask = (int) (slots / 2 - 1);
+    }
+
+    /**
+     * Opens a table file, creating it if it does not exist.
+     *
+     * @param file        the table file
+     * @param budgetBytes the size of a new file, rounded down to a power of two
+     *                    slots; an existing file keeps its size
+     * @param tag         names the game whose positions are stored, e.g.
+     *                    "connectfour", so that the hash keys of another game
+     *                    are never mistaken for its own
+     * @throws IOException if the file cannot be mapped, or belongs to another game or format
+     */
+    public static PersistentTable open(Path file, long budgetBytes, String tag) throws IOException {
+        long tagHash = hash(tag);
+        if (!Files.exists(file)) {
+            create(file, budgetBytes, tagHash);
+        }
+        FileChannel channel = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        try {
+            long size = channel.size();
+            ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES);
+            if (size < HEADER_BYTES || channel.read(header, 0) != HEADER_BYTES || header.getInt(0) != MAGIC) {
+                throw new IOException(file + " is not a search table");
+            }
+            if (header.getInt(4) != VERSION) {
+                throw new IOException(file + " has unsupported table version " + header.getInt(4));
+            }
+            if (header.getLong(8) != tagHash) {
+                throw new IOException(file + " stores positions of another game than " + tag);
+            }
+            long slots = header.getLong(16);
+            if (slots < 2 || slots > MAX_SLOTS || Long.bitCount(slots) != 1 || size != HEADER_BYTES + slots * SLOT_BYTES) {
+                throw new IOException(file + " is truncated or corrupt");
+            }
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+            return new PersistentTable(file, channel, buffer, slots);
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Creates an empty table file. The file is written under a temporary
+     * name and renamed, so that a crash never leaves a file with a partial header.
+     */
+    private static void create(Path file, long budgetBytes, long tagHash) throws IOException {
+        long slots = Long.highestOneBit(Math.max(2, Math.min(budgetBytes / SLOT_BYTES, MAX_SLOTS)));
+        Path temporary = file.resolveSibling(file.getFileName() + ".tmp");
+        try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES);
+            header.putInt(MAGIC).putInt(VERSION).putLong(tagHash).putLong(slots).flip();
+            channel.write(header, 0);
+            // the slots are zero (empty) without being written: the file is sparse where supported
+            channel.write(ByteBuffer.allocate(1), HEADER_BYTES + slots * SLOT_BYTES - 1);
+            channel.force(true);
+        }
+        Files.move(temporary, file, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Looks up a position in the file. Stores still in the batch are not seen.
+     *
+     * @param key the hash key of the position
+     * @return the packed entry, or TranspositionTable.MISS if the position is not stored
+     */
+    public long probe(long key) {
+        long position = offsetOf(slotOf(key));
+        long entry = buffer.getLong((int) position + 8);
+        if ((buffer.getLong((int) position) ^ entry) == key && entry != TranspositionTable.MISS) {
+            return entry;
+        }
+        entry = buffer.getLong((int) position + SLOT_BYTES + 8);
+        if ((buffer.getLong((int) position + SLOT_BYTES) ^ entry) == key && entry != TranspositionTable.MISS) {
+            return entry;
+        }
+        return TranspositionTable.MISS;
+    }
+
+    /**
+     * Stores the result of a search in the batch; see TranspositionTable#store.
+     * Can be called from several threads.
+     */
+    public synchronized void store(long key, int depth, int bound, int score, int moveId) {
+        batchKeys[batchCount] = key;
+        batchEntries[batchCount] = TranspositionTable.pack(depth, bound, score, moveId);
+        if (++batchCount == BATCH_SIZE) {
+            writeBatch();
+        }
+    }
+
+    /**
+     * Writes the batch to the file and forces the file to disk.
+     */
+    public synchronized void flush() {
+        writeBatch();
+        buffer.force();
+    }
+
+    /**
+     * Flushes the table and releases the file. The table must not be used afterwards.
+     */
+    @Override
+    public synchronized void close() throws IOException {
+        flush();
+        channel.close();
+    }
+
+    /**
+     * @return the number of entries the file can hold
+     */
+    public long capacity() {
+        return (bucketMask + 1L) * 2;
+    }
+
+    /**
+     * @return the table file
+     */
+    public Path getFile() {
+        return file;
+    }
+
+    /**
+     * Writes the batched stores to the mapping, in slot order so that each
+     * page is touched once, with the same replacement rule as TranspositionTable.
+     */
+    private void writeBatch() {
+        if (batchCount == 0) return;
+        // sort the batch by slot, keeping the store order of entries in the same slot
+        long[] order = new long[batchCount];
+        for (int i = 0; i < batchCount; i++) {
+            order[i] = ((long) slotOf(batchKeys[i]) << 32) | i;
+        }
+        Arrays.sort(order);
+        for (long slotAndIndex : order) {
+            int i = (int) slotAndIndex;
+            write(batchKeys[i], batchEntries[i]);
+        }
+        batchCount = 0;
+    }
+
+    private void write(long key, long entry) {
+        int position = (int) offsetOf(slotOf(key));
+        long stored = buffer.getLong(position + 8);
+        boolean samePosition = (buffer.getLong(position) ^ stored) == key;
+        if (stored != TranspositionTable.MISS && !samePosition
+                && TranspositionTable.depth(entry) < TranspositionTable.depth(stored)) {
+            position += SLOT_BYTES;
+        }
+        // the entry first: until the check word is written too, the slot matches no key
+        buffer.putLong(position + 8, entry);
+        buffer.putLong(position, key ^ entry);
+    }
+
+    private int slotOf(long key) {
+        return ((int) (key ^ (key >>> 32)) & bucketMask) * 2;
+    }
+
+    private static long offsetOf(int slot) {
+        return HEADER_BYTES + (long) slot * SLOT_BYTES;
+    }
+
+    /**
+     * 64-bit FNV-1a hash of a tag.
+     */
+    private static long hash(String tag) {
+        long hash = 0xCBF29CE484222325L;
+        for (int i = 0; i < tag.length(); i++) {
+            hash = (hash ^ tag.charAt(i)) * 0x100000001B3L;
+        }
+        return hash;
+    }
+}
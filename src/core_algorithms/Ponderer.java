@@ -0,0 +1,160 @@
+package core_algorithms;
+
+import problems.Game;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+/**
+ * Thinks on the opponent's time: while the opponent (typically a human)
+ * chooses a move, searches the answer to each of its possible moves on a
+ * background thread.
+ *
+ * The opponent's moves are tried in order of likelihood: a shallow search
+ * from the opponent's side predicts its best move, which is answered first,
+ * then the others follow in the order the game generates them. Once every
+ * move is answered at the requested depth, pondering goes on one ply
+ * deeper, and so on, for as long as the opponent thinks. The deepest
+ * answer found to each move is kept, so that once the actual move is known
+ * the reply is available at once if it was pondered (see reply). The
+ * searches share the caller's transposition table, so even a move whose
+ * answer was not finished leaves its subtree cached for the real search.
+ *
+ * Pondering works on a copy of the game, so the real game can be changed
+ * while it runs. Stop it (see stop) before searching with the shared table
+ * on another thread, to leave the CPU to that search.
+ *
+ * @param <A> the type representing a move or action in the game
+ */
+public class Ponderer<A> {
+
+    private final Game<A> game;
+    private final TranspositionTable table;
+    private final int depth;
+    // Creates the move ordering of every pondering search; null to use none
+    private final Supplier<MoveOrdering> orderings;
+    // Deepest answer found to each opponent move of the current position
+    private final Map<A, Answer<A>> replies = new ConcurrentHashMap<>();
+    // The pondering thread and its search, while pondering
+    private Thread thread;
+    private MinimaxPrune<A> search;
+
+    private record Answer<A>(A move, int depth) {}
+
+    /**
+     * @param game      the game to ponder on; only copies are searched
+     * @param table     the transposition table, shared with the caller's searches
+     * @param depth     the depth each answer is searched to first
+     * @param orderings creates a move ordering for each pondering search, or null
+     */
+    public Ponderer(Game<A> game, TranspositionTable table, int depth, Supplier<MoveOrdering> orderings) {
+        this.game = game;
+        this.table = table;
+        this.depth = depth;
+        this.orderings = orderings;
+    }
+
+    /**
+     * Starts pondering the current position of the game, with the opponent
+     * to move. Stops the previous pondering first and forgets its answers.
+     *
+     * @param opponentIsMax true if the opponent is the MAX player
+     */
+    public synchronized void start(boolean opponentIsMax) {
+        stop();
+        replies.clear();
+        if (game.isTerminal()) {
+            return;
+        }
+        Game<A> position = game.copy();
+        MinimaxPrune<A> ponderSearch = new MinimaxPrune<>(position, table);
+        if (orderings != null) {
+            ponderSearch.setMoveOrdering(orderings.get());
+        }
+        search = ponderSearch;
+        thread = Thread.ofPlatform().daemon().name("ponder")
+                .start(() -> ponder(position, ponderSearch, opponentIsMax));
+    }
+
+    /**
+     * Stops pondering and waits for the background thread to finish, which
+     * takes at most the time to search a few thousand positions.
+     * The answers found so far stay available.
+     */
+    public synchronized void stop() {
+        if (thread == null) {
+            return;
+        }
+        search.stop();
+        boolean interrupted = false;
+        while (true) {
+            try {
+                thread.join();
+                break;
+            } catch (InterruptedException e) {
+                interrupted = true;
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+        thread = null;
+        search = null;
+    }
+
+    /**
+     * Returns the answer found by pondering to an opponent move.
+     *
+     * @param opponentMove the move the opponent played
+     * @return the best reply at the pondering depth, or null if it was not pondered to the end
+     */
+    public A reply(A opponentMove) {
+        Answer<A> answer = replies.get(opponentMove);
+        return answer == null ? null : answer.move();
+    }
+
+    /**
+     * @param opponentMove the move the opponent played
+     * @return the depth its answer (see reply) was searched to, or 0 if it was not pondered
+     */
+    public int replyDepth(A opponentMove) {
+        Answer<A> answer = replies.get(opponentMove);
+        return answer == null ? 0 : answer.depth();
+    }
+
+    /**
+     * @return the number of opponent moves answered so far
+     */
+    public int getReplyCount() {
+        return replies.size();
+    }
+
+    private void ponder(Game<A> position, MinimaxPrune<A> ponderSearch, boolean opponentIsMax) {
+        // a cheap search from the opponent's side predicts its most likely move
+        A predicted = ponderSearch.minimaxSearch(Math.max(1, depth - 2), opponentIsMax);
+        if (predicted == null) {
+            return;
+        }
+        List<A> moves = new ArrayList<>(position.getAllRemainingMoves());
+        moves.remove(predicted);
+        moves.add(0, predicted);
+        for (int searchDepth = depth; searchDepth <= MinimaxPrune.MAX_SEARCH_DEPTH; searchDepth++) {
+            for (A move : moves) {
+                position.execute(move, opponentIsMax);
+                // a move that ends the game needs no answer
+                boolean over = position.isTerminal();
+                A reply = over ? null : ponderSearch.minimaxSearch(searchDepth, !opponentIsMax);
+                position.undo(move, opponentIsMax);
+                if (!over && reply == null) {
+                    return; // stopped
+                }
+                if (reply != null) {
+                    replies.put(move, new Answer<>(reply, searchDepth));
+                }
+            }
+        }
+    }
+}
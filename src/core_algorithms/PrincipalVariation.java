@@ -0,0 +1,76 @@
+package core_algorithms;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * A triangular table holding the best line of play (principal variation)
+ * found so far at every ply of a search.
+ *
+ * Row p holds the line starting at ply p, in slots p, p+1, ... When a move
+ * at ply p improves on the previous best, the line of ply p+1 is copied
+ * behind it. The table is allocated once and only grows when a search goes
+ * deeper than ever before, so tracking the line allocates nothing per node.
+ *
+ * @param <A> the type representing a move or action in the game
+ */
+final class PrincipalVariation<A> {
+    private Object[][] moves = new Object[0][];
+    private int[] lengths = new int[0];
+
+    /**
+     * Empties the line at the given ply. Call this when entering a node.
+     */
+    void clear(int ply) {
+        ensureCapacity(ply + 1);
+        lengths[ply] = ply;
+    }
+
+    /**
+     * Makes move, followed by the line found at ply + 1, the line at ply.
+     */
+    void update(int ply, A move) {
+        Object[] row = moves[ply];
+        row[ply] = move;
+        int childLength = lengths[ply + 1];
+        System.arraycopy(moves[ply + 1], ply + 1, row, ply + 1, childLength - ply - 1);
+        lengths[ply] = childLength;
+    }
+
+    /**
+     * @return the number of moves in the line at the given ply
+     */
+    int length(int ply) {
+        return lengths[ply] - ply;
+    }
+
+    /**
+     * @return a new list holding the line found at ply 0
+     */
+    @SuppressWarnings("unchecked")
+    List<A> line() {
+        List<A> line = new ArrayList<>(length(0));
+        for (int i = 0; i < lengths[0]; i++) {
+            line.add((A) moves[0][i]);
+        }
+        return line;
+    }
+
+    /**
+     * Makes room for lines starting at up to plies - 1, plus the child line of the deepest one.
+     */
+    private void ensureCapacity(int plies) {
+        if (plies + 1 <= moves.length) return;
+        int size = Math.max(plies + 1, moves.length * 2);
+        Object[][] grown = Arrays.copyOf(moves, size);
+        for (int ply = moves.length; ply < size; ply++) {
+            grown[ply] = new Object[size];
+        }
+        for (int ply = 0; ply < moves.length; ply++) {
+            grown[ply] = Arrays.copyOf(moves[ply], size);
+        }
+        moves = grown;
+        lengths = Arrays.copyOf(lengths, size);
+    }
+}
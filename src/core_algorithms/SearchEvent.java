@@ -0,0 +1,44 @@
+package core_algorithms;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * Flight Recorder event committed at the end of every search with the
+ * counters of its SearchStats. The event duration is the search time.
+ */
+@Name("core_algorithms.Search")
+@Label("Search")
+@Category("Zero Sum Game")
+@Description("A completed minimax search")
+class SearchEvent extends Event {
+    @Label("Depth")
+    int depth;
+
+    @Label("Nodes")
+    long nodes;
+
+    @Label("Leaves")
+    long leaves;
+
+    @Label("Terminal Positions")
+    long terminals;
+
+    @Label("Table Hits")
+    long tableHits;
+
+    @Label("Cutoffs")
+    long cutoffs;
+
+    @Label("First Move Cutoff Rate")
+    double firstMoveCutoffRate;
+
+    @Label("Effective Branching Factor")
+    double effectiveBranchingFactor;
+
+    @Label("Nodes per Second")
+    double nodesPerSecond;
+}
@@ -0,0 +1,229 @@
+package core_algorithms;
+
+import java.time.Duration;
+import java.util.Arrays;
+
+/**
+ * Counters describing one search (one call to minimaxSearch): how many
+ * positions were visited at each ply, how many of them were leaves (cut
+ * short by the depth limit), terminal positions, transposition table hits
+ * and beta cutoffs, how often the first move tried caused the cutoff, and
+ * how often the root was searched again after its score fell outside the
+ * window (see MinimaxPrune.Driver).
+ *
+ * From those it derives the effective branching factor, the nodes per
+ * second and the first-move cutoff rate. Every finished search is also
+ * reported to JDK Flight Recorder as a SearchEvent.
+ *
+ * Counting is a few array increments per node. It can be switched off
+ * with -Dsearch.stats=false; ENABLED is then a constant false and the JIT
+ * removes the counting code from the search entirely.
+ */
+public class SearchStats {
+    // Read once at class initialization so that the JIT can fold it
+    public static final boolean ENABLED = !"false".equals(System.getProperty("search.stats"));
+
+    // Counters indexed by ply (0 = root), grown on demand
+    private long[] nodes = new long[16];
+    private long[] leaves = new long[16];
+    private long[] terminals = new long[16];
+    private long[] tableHits = new long[16];
+    private long[] cutoffs = new long[16];
+    private long[] firstMoveCutoffs = new long[16];
+    // Root searches repeated with another window
+    private long researches;
+    // Number of plies that saw at least one node
+    private int plies;
+    // Deepest iteration that completed
+    private int depth;
+    private long startNanos;
+    private long elapsedNanos;
+    // Flight Recorder event of the current search; its duration is the search time
+    private SearchEvent event;
+
+    /**
+     * Clears the counters and starts the clock.
+     */
+    void start() {
+        Arrays.fill(nodes, 0);
+        Arrays.fill(leaves, 0);
+        Arrays.fill(terminals, 0);
+        Arrays.fill(tableHits, 0);
+        Arrays.fill(cutoffs, 0);
+        Arrays.fill(firstMoveCutoffs, 0);
+        researches = 0;
+        plies = 0;
+        depth = 0;
+        elapsedNanos = 0;
+        event = new SearchEvent();
+        event.begin();
+        startNanos = System.nanoTime();
+    }
+
+    /**
+     * Stops the clock and reports the search to Flight Recorder.
+     *
+     * @param depth the depth of the deepest iteration that completed
+     */
+    void finish(int depth) {
+        this.depth = depth;
+        elapsedNanos = System.nanoTime() - startNanos;
+        event.end();
+        if (event.shouldCommit()) {
+            event.depth = depth;
+            event.nodes = getNodes();
+            event.leaves = getLeaves();
+            event.terminals = getTerminals();
+            event.tableHits = getTableHits();
+            event.cutoffs = getCutoffs();
+            event.firstMoveCutoffRate = getFirstMoveCutoffRate();
+            event.effectiveBranchingFactor = getEffectiveBranchingFactor();
+            event.nodesPerSecond = getNodesPerSecond();
+            event.commit();
+        }
+    }
+
+    void node(int ply) {
+        if (ply >= nodes.length) grow(ply);
+        if (ply >= plies) plies = ply + 1;
+        nodes[ply]++;
+    }
+
+    void leaf(int ply) {
+        leaves[ply]++;
+    }
+
+    void terminal(int ply) {
+        terminals[ply]++;
+    }
+
+    void tableHit(int ply) {
+        tableHits[ply]++;
+    }
+
+    /**
+     * @param moveNumber the position of the move in the search order (0 = first)
+     */
+    void cutoff(int ply, int moveNumber) {
+        cutoffs[ply]++;
+        if (moveNumber == 0) firstMoveCutoffs[ply]++;
+    }
+
+    void research() {
+        researches++;
+    }
+
+    /**
+     * @return the depth of the deepest iteration that completed
+     */
+    public int getDepth() {
+        return depth;
+    }
+
+    /**
+     * @return the number of plies at which nodes were visited
+     */
+    public int getPlies() {
+        return plies;
+    }
+
+    public long getNodes() {
+        return sum(nodes);
+    }
+
+    public long getNodes(int ply) {
+        return ply < plies ? nodes[ply] : 0;
+    }
+
+    public long getLeaves() {
+        return sum(leaves);
+    }
+
+    public long getLeaves(int ply) {
+        return ply < plies ? leaves[ply] : 0;
+    }
+
+    public long getTerminals() {
+        return sum(terminals);
+    }
+
+    public long getTerminals(int ply) {
+        return ply < plies ? terminals[ply] : 0;
+    }
+
+    public long getTableHits() {
+        return sum(tableHits);
+    }
+
+    public long getTableHits(int ply) {
+        return ply < plies ? tableHits[ply] : 0;
+    }
+
+    public long getCutoffs() {
+        return sum(cutoffs);
+    }
+
+    public long getCutoffs(int ply) {
+        return ply < plies ? cutoffs[ply] : 0;
+    }
+
+    /**
+     * @return the number of times the root was searched again with another window
+     */
+    public long getResearches() {
+        return researches;
+    }
+
+    /**
+     * @return the fraction of cutoffs produced by the first move tried (0 if no cutoffs)
+     */
+    public double getFirstMoveCutoffRate() {
+        long total = getCutoffs();
+        return total == 0 ? 0 : (double) sum(firstMoveCutoffs) / total;
+    }
+
+    /**
+     * The effective branching factor b is the branching factor of a uniform
+     * tree of the search depth d with as many nodes: b^d = nodes.
+     *
+     * @return the effective branching factor, or 0 before any search completed
+     */
+    public double getEffectiveBranchingFactor() {
+        return depth == 0 ? 0 : Math.pow(getNodes(), 1.0 / depth);
+    }
+
+    public Duration getElapsed() {
+        return Duration.ofNanos(elapsedNanos);
+    }
+
+    public double getNodesPerSecond() {
+        return elapsedNanos == 0 ? 0 : getNodes() * 1e9 / elapsedNanos;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("depth %d, %d nodes (%d leaves, %d terminal, %d table hits), %d cutoffs "
+                        + "(%.1f%% first move), EBF %.2f, %.0f ms, %.0f nodes/s",
+                depth, getNodes(), getLeaves(), getTerminals(), getTableHits(), getCutoffs(),
+                100 * getFirstMoveCutoffRate(), getEffectiveBranchingFactor(),
+                elapsedNanos / 1e6, getNodesPerSecond());
+    }
+
+    private void grow(int ply) {
+        int length = Math.max(ply + 1, 2 * nodes.length);
+        nodes = Arrays.copyOf(nodes, length);
+        leaves = Arrays.copyOf(leaves, length);
+        terminals = Arrays.copyOf(terminals, length);
+        tableHits = Arrays.copyOf(tableHits, length);
+        cutoffs = Arrays.copyOf(cutoffs, length);
+        firstMoveCutoffs = Arrays.copyOf(firstMoveCutoffs, length);
+    }
+
+    private long sum(long[] counts) {
+        long total = 0;
+        for (int ply = 0; ply < plies; ply++) {
+            total += counts[ply];
+        }
+        return total;
+    }
+}
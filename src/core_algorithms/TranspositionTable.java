@@ -0,0 +1,146 @@
+package core_algorithms;
+
+import java.util.Arrays;
+
+/**
+ * A fixed-size transposition table for alpha-beta search, stored in two
+ * primitive arrays so that probing and storing never allocate.
+ *
+ * The table is split into buckets of two entries:
+ * - the first entry is depth-preferred: it is only replaced by a search
+ *   at least as deep (or by the same position)
+ * - the second entry is always replaced
+ *
+ * Each entry packs depth, bound type, score and best move into one long.
+ * The key is stored XOR-ed with that long, so an entry half-written by
+ * another thread simply fails to match instead of returning a wrong result.
+ */
+public class TranspositionTable {
+    /** The stored score is the exact minimax value. */
+    public static final int EXACT = 0;
+    /** The stored score is a lower bound (the search failed high). */
+    public static final int LOWER_BOUND = 1;
+    /** The stored score is an upper bound (the search failed low). */
+    public static final int UPPER_BOUND = 2;
+
+    /** Value returned by probe when the position is not in the table. */
+    public static final long MISS = 0;
+
+    // Bytes used by one entry: one long for the key, one for the data
+    private static final int ENTRY_BYTES = 16;
+    // Marks a slot as used, so that a stored entry is never equal to MISS
+    private static final long VALID = 1L << 63;
+
+    private final long[] keys;
+    private final long[] data;
+    private final int bucketMask;
+
+    /**
+     * Creates a table using at most the given number of bytes. The number
+     * of entries is rounded down to a power of two (at least one bucket).
+     *
+     * @param budgetBytes the memory budget for the table
+     */
+    public TranspositionTable(long budgetBytes) {
+        long entries = Math.max(2, Math.min(budgetBytes / ENTRY_BYTES, 1 << 30));
+        int size = Integer.highestOneBit((int) entries);
+        this.keys = new long[size];
+        this.data = new long[size];
+        this.bucketMask = size / 2 - 1;
+    }
+
+    /**
+     * Looks up a position.
+     *
+     * @param key the hash key of the position
+     * @return the packed entry, or MISS if the position is not stored;
+     *         use score, depth, bound and move to read it
+     */
+    public long probe(long key) {
+        int slot = slotOf(key);
+        long entry = data[slot];
+        if ((keys[slot] ^ entry) == key && entry != MISS) {
+            return entry;
+        }
+        entry = data[slot + 1];
+        if ((keys[slot + 1] ^ entry) == key && entry != MISS) {
+            return entry;
+        }
+        return MISS;
+    }
+
+    /**
+     * Stores the result of a search.
+     *
+     * @param key    the hash key of the position
+     * @param depth  the remaining depth the position was searched to (0-255)
+     * @param bound  EXACT, LOWER_BOUND or UPPER_BOUND
+     * @param score  the score found by the search
+     * @param moveId the id of the best move found, or -1 if none
+     */
+    public void store(long key, int depth, int bound, int score, int moveId) {
+        long entry = pack(depth, bound, score, moveId);
+        int slot = slotOf(key);
+        long stored = data[slot];
+        boolean samePosition = (keys[slot] ^ stored) == key;
+        if (stored == MISS || samePosition || depth >= depth(stored)) {
+            write(slot, key, entry);
+        } else {
+            write(slot + 1, key, entry);
+        }
+    }
+
+    /**
+     * Removes every entry from the table.
+     */
+    public void clear() {
+        Arrays.fill(keys, 0);
+        Arrays.fill(data, 0);
+    }
+
+    /**
+     * @return the number of entries the table can hold
+     */
+    public int capacity() {
+        return data.length;
+    }
+
+    /**
+     * Packs a search result into an entry, as returned by probe; never MISS.
+     */
+    static long pack(int depth, int bound, int score, int moveId) {
+        return VALID
+                | ((long) bound << 56)
+                | ((long) Math.min(depth, 255) << 48)
+                | ((long) ((moveId + 1) & 0xFFFF) << 32)
+                | (score & 0xFFFFFFFFL);
+    }
+
+    public static int score(long entry) {
+        return (int) entry;
+    }
+
+    public static int depth(long entry) {
+        return (int) (entry >>> 48) & 0xFF;
+    }
+
+    public static int bound(long entry) {
+        return (int) (entry >>> 56) & 0x3;
+    }
+
+    /**
+     * @return the id of the best move stored in the entry, or -1 if none
+     */
+    public static int move(long entry) {
+        return ((int) (entry >>> 32) & 0xFFFF) - 1;
+    }
+
+    private void write(int slot, long key, long entry) {
+        data[slot] = entry;
+        keys[slot] = key ^ entry;
+    }
+
+    private int slotOf(long key) {
+        return ((int) (key ^ (key >>> 32)) & bucketMask) * 2;
+    }
+}
@@ -2,153 +2,569 @@ package problems;
 
 import java.util.*;
 
-public class ConnectFour implements Game<Square>{
+/**
+ * Represents a Connect Four game: 6 rows, 7 columns and lines of 4 by
+ * default, or any other board size and line length (e.g., 7 rows of 8
+ * columns, or connect-5).
+ *
+ * The board is stored as one bitboard per player. Each column uses
+ * ROWS + 1 consecutive bits, bottom cell first; the extra bit on top of
+ * every column is always empty and keeps shifted lines from wrapping into
+ * the next column. The bitboards are a single long per player when they
+ * fit in 64 bits ((ROWS + 1) * COLUMNS <= 64, e.g., 7 rows of 8 columns),
+ * an array of longs on larger boards. A Square with row 0 is the
+ * top row, as printed.
+ *
+ * The masks of all lines of WINCOUNT cells, and the lines through every
+ * cell, are precomputed for the size of each board and shared by its copies.
+ *
+ * The win status and the heuristic score are not recomputed from the board:
+ * execute and undo update per-line mark counters for the lines through the
+ * played cell and adjust both from those.
+ *
+ * Moves can be given either as the Square being filled (Game) or as
+ * the column number (IntMoveGame); toSquare converts between the two.
+ *
+ * The opening book and the solver only know the standard board (see
+ * isStandardSize), and positionKey needs a board that fits in one long.
+ *
+ * The board is left-right symmetric (SymmetricGame): symmetry 1 is the
+ * mirror image, whose hash key is maintained alongside hashKey.
+ *
+ * Assumptions:
+ * - 'X' is the MAX player (human)
+ * - 'O' is the MIN player (AI)
+ */
+public class ConnectFour implements SymmetricGame<Square>, IntMoveGame{
+
+    // Size of the standard game
+    public static final int DEFAULT_ROWS = 6;
+    public static final int DEFAULT_COLUMNS = 7;
+    public static final int DEFAULT_WIN_LENGTH = 4;
+    // Largest number of rows or columns
+    public static final int MAX_SIZE = 32;
+    // Utility of a won game for X; -WIN_SCORE for O
+    public static final int WIN_SCORE = 1_000_000;
+
+    private final int ROWS;
+    private final int COLUMNS;
+    private final int WINCOUNT;
+    // Bits used per column in the bitboards (one spare bit on top)
+    private final int HEIGHT;
+    // Columns tried from the center outwards: 3, 2, 4, 1, 5, 0, 6 on the standard board
+    private final int[] preferredColumns;
+    // One mask per line of WINCOUNT cells that fits on the board, indexed by [line][word]
+    private final long[][] winMasks;
+    // Indices into winMasks of the lines passing through each cell, indexed by bit position
+    private final int[][] cellWindows;
+    // Heuristic value (X's score minus O's score) of a single line, indexed by windowIndex(xCount, oCount)
+    private final int[] windowScores;
+    // Shared Square instance for every cell, indexed by bit position
+    private final Square[] squares;
+    // Zobrist keys for an X and an O mark on each cell, indexed by bit position.
+    // The seed is fixed so that hash keys are the same in every run.
+    private final long[] xKeys;
+    private final long[] oKeys;
+
+    // Cells marked by X (MAX) and by O (MIN), for boards of up to 64 bits
+    private long xBoard;
+    private long oBoard;
+    // Cells marked by X and by O on larger boards, 64 bits per word; null on small boards
+    private final long[] xWords;
+    private final long[] oWords;
+    // Number of marks in each column
+    private final int[] heights;
+    private int moveCount;
+    // Number of X and O marks in each line of winMasks
+    private final byte[] xCounts;
+    private final byte[] oCounts;
+    // Heuristic value of the board, updated by execute and undo
+    private int score;
+    // Zobrist hash of the board, updated by execute and undo
+    private long hashKey;
+    // Zobrist hash of the mirror image of the board
+    private long mirroredHashKey;
+    // Player who completed a line, or null while nobody has won
+    private Mark winner;
+    // Value of moveCount right after the winning move, so undo knows when to clear winner
+    private int winningMoveCount;
+
+
+    /**
+     * Creates the standard game: 6 rows, 7 columns, lines of 4.
+     */
+    public ConnectFour() {
+        this(DEFAULT_ROWS, DEFAULT_COLUMNS, DEFAULT_WIN_LENGTH);
+    }
 
-    private final int ROWS = 6;
-    private final int COLUMNS = 7;
-    private final Map<Square, Mark> board;
-    private final int WINCOUNT = 4;
+    /**
+     * @param rows      the number of rows, 1 to MAX_SIZE
+     * @param columns   the number of columns, 1 to MAX_SIZE
+     * @param winLength the number of marks in a row that wins, at least 2
+     *                  and at most the number of rows or of columns
+     */
+    public ConnectFour(int rows, int columns, int winLength) {
+        if (rows < 1 || rows > MAX_SIZE || columns < 1 || columns > MAX_SIZE) {
+            throw new IllegalArgumentException("Board must have 1 to " + MAX_SIZE + " rows and columns: "
+                    + rows + "x" + columns);
+        }
+        if (winLength < 2 || winLength > Math.max(rows, columns)) {
+            throw new IllegalArgumentException("No line of " + winLength + " fits on a "
+                    + rows + "x" + columns + " board");
+        }
+        ROWS = rows;
+        COLUMNS = columns;
+        WINCOUNT = winLength;
+        HEIGHT = rows + 1;
+        int bits = COLUMNS * HEIGHT;
+        int words = (bits + Long.SIZE - 1) / Long.SIZE;
+        xWords = words == 1 ? null : new long[words];
+        oWords = words == 1 ? null : new long[words];
+        preferredColumns = buildPreferredColumns();
+        winMasks = buildWinMasks(words);
+        cellWindows = buildCellWindows();
+        windowScores = buildWindowScores();
+        squares = buildSquares();
+        xKeys = buildZobristKeys(0x5DEECE66DL);
+        oKeys = buildZobristKeys(0xB5AD4ECEDA1CE2A9L);
+        heights = new int[COLUMNS];
+        xCounts = new byte[winMasks.length];
+        oCounts = new byte[winMasks.length];
+    }
 
+    private ConnectFour(ConnectFour other) {
+        ROWS = other.ROWS;
+        COLUMNS = other.COLUMNS;
+        WINCOUNT = other.WINCOUNT;
+        HEIGHT = other.HEIGHT;
+        // the tables depend only on the size of the board, so they can be shared
+        preferredColumns = other.preferredColumns;
+        winMasks = other.winMasks;
+        cellWindows = other.cellWindows;
+        windowScores = other.windowScores;
+        squares = other.squares;
+        xKeys = other.xKeys;
+        oKeys = other.oKeys;
+        xBoard = other.xBoard;
+        oBoard = other.oBoard;
+        xWords = other.xWords == null ? null : other.xWords.clone();
+        oWords = other.oWords == null ? null : other.oWords.clone();
+        heights = other.heights.clone();
+        moveCount = other.moveCount;
+        xCounts = other.xCounts.clone();
+        oCounts = other.oCounts.clone();
+        score = other.score;
+        hashKey = other.hashKey;
+        mirroredHashKey = other.mirroredHashKey;
+        winner = other.winner;
+        winningMoveCount = other.winningMoveCount;
+    }
 
-    public ConnectFour() {
-        board = new HashMap<>();
+    @Override
+    public ConnectFour copy() {
+        return new ConnectFour(this);
     }
 
+    /**
+     * Checks if the current state is terminal (win or draw).
+     * The win status is kept up to date by execute and undo, so this never
+     * evaluates the board.
+     */
     @Override
     public boolean isTerminal() {
-        int utility = utility();
-        if (Math.abs(utility) >= 1_000_000){
+        if (winner != null){
             return true;
         }
-        return board.size() == ROWS * COLUMNS;
+        return moveCount == ROWS * COLUMNS;
     }
 
+    /**
+     * Returns +/-WIN_SCORE for a won game, otherwise the heuristic score of the
+     * board, which execute and undo keep up to date.
+     */
     @Override
     public int utility() {
-        if (isWinning(Mark.X)) return 1_000_000;
-        if (isWinning(Mark.O)) return -1_000_000;
+        if (winner == Mark.X) return WIN_SCORE;
+        if (winner == Mark.O) return -WIN_SCORE;
 
 
-        return evaluateBoard(Mark.X) - evaluateBoard(Mark.O);
+        return score;
     }
 
-    private boolean isWinning(Mark mark) {
-        for (int row = 0; row < ROWS; row++) {
-            for (int col = 0; col < COLUMNS; col++) {
-                if (countConsecutive(row, col, 0, 1, mark) >= WINCOUNT) return true;
-                if (countConsecutive(row, col, 1, 0, mark) >= WINCOUNT) return true;
-                if (countConsecutive(row, col, 1, 1, mark) >= WINCOUNT) return true;
-                if (countConsecutive(row, col, 1, -1, mark) >= WINCOUNT) return true;
-            }
-        }
-        return false;
+    /**
+     * Scores one line of WINCOUNT cells from the point of view of the player
+     * owning count of its cells; the opponent owns opponentCount of them.
+     * A line one mark short of a win is a threat; on the standard board,
+     * three marks with one empty cell.
+     */
+    private int evaluateWindow(int count, int opponentCount) {
+        int score = 0;
+        int empty = WINCOUNT - count - opponentCount;
+
+        if (count == WINCOUNT - 1 && empty == 1){score += 100;}
+        else if (count == WINCOUNT - 2 && empty == 2){score += 10;}
+        if(opponentCount == WINCOUNT - 1 && empty == 1){score -= 500;}
+        return score;
     }
 
-    private int evaluateBoard(Mark mark) {
-        int score = 0;
+    private int windowIndex(int xCount, int oCount) {
+        return xCount * (WINCOUNT + 1) + oCount;
+    }
 
-        for (int row = 0; row < ROWS; row++) {
-            Square center = new Square(row, COLUMNS / 2);
-            if(board.get(center) == mark){
-                score += 3;
+    /**
+     * Adds or removes a mark on the given cell in the line counters and keeps
+     * the running score in step: only the lines through that cell change.
+     *
+     * @return true if the mark was added and completed a line
+     */
+    private boolean updateWindows(int index, boolean isX, int delta) {
+        boolean completed = false;
+        for (int window : cellWindows[index]) {
+            score -= windowScores[windowIndex(xCounts[window], oCounts[window])];
+            int count;
+            if (isX) {
+                count = xCounts[window] + delta;
+                xCounts[window] = (byte) count;
+            } else {
+                count = oCounts[window] + delta;
+                oCounts[window] = (byte) count;
             }
+            score += windowScores[windowIndex(xCounts[window], oCounts[window])];
+            completed |= count == WINCOUNT;
+        }
+        // the center column, or both center columns of an even board
+        int column = index / HEIGHT;
+        if (column == COLUMNS / 2 || column == (COLUMNS - 1) / 2) {
+            score += isX ? 3 * delta : -3 * delta;
         }
-        score += evaluateWindow(mark);
+        return completed;
+    }
 
-        return score;
+
+
+    @Override
+    public void undo(Square move, boolean isMax) {
+        remove(move.column(), ROWS - 1 - move.row());
     }
 
-    private int evaluateWindow(Mark mark) {
-        int score = 0;
+    /**
+     * Removes the top mark of the given column.
+     */
+    @Override
+    public void undo(int column, boolean isMax) {
+        remove(column, heights[column] - 1);
+    }
 
-        int[][] directions = {
-                {0, 1},
-                {1, 0},
-                {1, 1},
-                {1, -1}
-        };
-        for (int row = 0; row < ROWS; row++) {
-            for (int col = 0; col < COLUMNS; col++) {
-                for (int[] direction : directions) {
-                    int count = 0;
-                    int empty = 0;
-                    int opponentCount = 0;
+    private void remove(int column, int height) {
+        int index = column * HEIGHT + height;
+        Mark removed = markAt(index);
+        if (removed == Mark.X) {
+            updateWindows(index, true, -1);
+            hashKey ^= xKeys[index];
+            mirroredHashKey ^= xKeys[mirrorIndex(index)];
+        } else if (removed == Mark.O) {
+            updateWindows(index, false, -1);
+            hashKey ^= oKeys[index];
+            mirroredHashKey ^= oKeys[mirrorIndex(index)];
+        }
+        long bit = 1L << index;
+        if (xWords == null) {
+            xBoard &= ~bit;
+            oBoard &= ~bit;
+        } else {
+            xWords[index >>> 6] &= ~bit;
+            oWords[index >>> 6] &= ~bit;
+        }
+        heights[column] = height;
+        if (winner != null && moveCount == winningMoveCount) {
+            winner = null;
+        }
+        moveCount--;
+    }
 
-                    for (int i = 0; i < WINCOUNT; i++) {
-                        int r = row + direction[0] * i;
-                        int c = col + direction[1] * i;
 
-                        if(r < 0 || r >= ROWS || c < 0 || c >= COLUMNS){ break;}
 
-                        Square sq = new Square(r, c);
-                        Mark current = board.get(sq);
+    @Override
+    public void execute(Square move, boolean isMax) {
+        place(move.column(), ROWS - 1 - move.row(), isMax);
+    }
 
-                        if(current == mark){count++;}
-                        else if (current == null) {empty++;}
-                        else {opponentCount++;}
-                    }
+    /**
+     * Drops a mark in the given column.
+     */
+    @Override
+    public void execute(int column, boolean isMax) {
+        place(column, heights[column], isMax);
+    }
 
-                    if (count == 3 && empty == 1){score += 100;}
-                    else if (count == 2 && empty == 2){score += 10;}
-                    if(opponentCount == 3 && empty == 1){score -= 500;}
-                }
+    private void place(int column, int height, boolean isMax) {
+        int index = column * HEIGHT + height;
+        long bit = 1L << index;
+        if(isMax){
+            if (xWords == null) xBoard |= bit;
+            else xWords[index >>> 6] |= bit;
+            hashKey ^= xKeys[index];
+            mirroredHashKey ^= xKeys[mirrorIndex(index)];
+        }
+        else{
+            if (oWords == null) oBoard |= bit;
+            else oWords[index >>> 6] |= bit;
+            hashKey ^= oKeys[index];
+            mirroredHashKey ^= oKeys[mirrorIndex(index)];
+        }
+        heights[column] = height + 1;
+        moveCount++;
+        boolean completed = updateWindows(index, isMax, 1);
+        if (winner == null && completed) {
+            winner = isMax ? Mark.X : Mark.O;
+            winningMoveCount = moveCount;
+        }
+    }
+
+    @Override
+    public List<Square> getAllRemainingMoves() {
+        List<Square> moves = new ArrayList<>(COLUMNS);
+        for(int col : preferredColumns){
+            int height = heights[col];
+            if(height < ROWS){
+                moves.add(squares[col * HEIGHT + height]);
             }
         }
-        return score;
+
+        return moves;
     }
 
-    private int countConsecutive(int row, int col, int dRow, int dCol, Mark mark){
+    /**
+     * Writes the playable columns, center columns first, without allocating.
+     */
+    @Override
+    public int generateMoves(int[] moves) {
         int count = 0;
-        for(int i = 0; i < WINCOUNT; i++){
-            int r = row + dRow * i;
-            int c = col + dCol * i;
-            if(r < 0 || r >= ROWS || c < 0 || c >= COLUMNS)break;
-            Square square = new Square(r, c);
-            if(board.get(square) != mark)break;
-            count++;
+        for(int col : preferredColumns){
+            if(heights[col] < ROWS){
+                moves[count++] = col;
+            }
         }
         return count;
     }
 
+    /**
+     * Converts a column (an IntMoveGame move) to the square a mark dropped there would fill.
+     *
+     * @param column a column that is not full
+     * @return the lowest empty square of the column
+     */
+    public Square toSquare(int column) {
+        return squares[column * HEIGHT + heights[column]];
+    }
 
+    @Override
+    public long hashKey() {
+        return hashKey;
+    }
 
     @Override
-    public void undo(Square move, boolean isMax) {
-        board.remove(move);
+    public int symmetryCount() {
+        return 2;
     }
 
+    /**
+     * Symmetry 1 is the left-right mirror image.
+     */
+    @Override
+    public long symmetricKey(int symmetry) {
+        return symmetry == 0 ? hashKey : mirroredHashKey;
+    }
 
+    @Override
+    public int mapMove(int column, int symmetry) {
+        return symmetry == 0 ? column : COLUMNS - 1 - column;
+    }
 
+    /**
+     * The mirror image is its own inverse.
+     */
     @Override
-    public void execute(Square move, boolean isMax) {
-        if(isMax){
-            board.put(move, Mark.X);
+    public int unmapMove(int column, int symmetry) {
+        return mapMove(column, symmetry);
+    }
+
+    /**
+     * Returns a key that identifies the position exactly, unlike hashKey:
+     * the occupied cells plus the X marks. In a column of height h the sum
+     * lies between 2^h - 1 and 2^(h+1) - 2, so it gives back both the height
+     * and the X marks, and it never carries into the next column.
+     *
+     * @return a key below 2^(COLUMNS * HEIGHT), unsigned
+     * @throws IllegalStateException if the board does not fit in one long
+     */
+    public long positionKey() {
+        if (xWords != null) {
+            throw new IllegalStateException("Position keys need a board of at most 64 bits, not "
+                    + ROWS + "x" + COLUMNS);
         }
-        else{
-            board.put(move, Mark.O);
+        return (xBoard | oBoard) + xBoard;
+    }
+
+    /**
+     * Returns the positionKey of the left-right mirror image of the position.
+     */
+    public long mirroredPositionKey() {
+        long key = positionKey();
+        long columnMask = (1L << HEIGHT) - 1;
+        long mirrored = 0;
+        for (int col = 0; col < COLUMNS; col++) {
+            long column = (key >>> (col * HEIGHT)) & columnMask;
+            mirrored |= column << ((COLUMNS - 1 - col) * HEIGHT);
         }
+        return mirrored;
+    }
 
+    /**
+     * Moves are identified by their column, the only choice a player makes.
+     */
+    @Override
+    public int moveId(Square move) {
+        return move.column();
     }
 
     @Override
-    public List<Square> getAllRemainingMoves() {
-        List<Square> moves = new ArrayList<>();
-        List<Integer> preferredColumns = List.of(3, 2, 4, 1, 5, 0, 6);
-        for(int col : preferredColumns){
-            for(int row = ROWS - 1; row >= 0; row--){
-                Square square = new Square(row, col);
-                if(!board.containsKey(square)){
-                    moves.add(square);
-                    break;
+    public int moveIdCount() {
+        return COLUMNS;
+    }
+
+    public boolean markedSquare(Square square) {
+        return markAt(bitIndex(square.row(), square.column())) != null;
+    }
+
+    public int getRows() {
+        return ROWS;
+    }
+
+    public int getColumns() {
+        return COLUMNS;
+    }
+
+    /**
+     * @return the number of marks in a row that wins
+     */
+    public int getWinLength() {
+        return WINCOUNT;
+    }
+
+    /**
+     * @return true on the standard 6x7 board with lines of 4, the only size
+     *         the opening book and the solver know
+     */
+    public boolean isStandardSize() {
+        return ROWS == DEFAULT_ROWS && COLUMNS == DEFAULT_COLUMNS && WINCOUNT == DEFAULT_WIN_LENGTH;
+    }
+
+    /**
+     * Returns the mark on the cell at the given bit position, or null if it is empty.
+     */
+    private Mark markAt(int index) {
+        long bit = 1L << index;
+        if (xWords == null) {
+            if ((xBoard & bit) != 0) return Mark.X;
+            return (oBoard & bit) != 0 ? Mark.O : null;
+        }
+        if ((xWords[index >>> 6] & bit) != 0) return Mark.X;
+        return (oWords[index >>> 6] & bit) != 0 ? Mark.O : null;
+    }
+
+    /**
+     * Returns the bit position of the mirror image of a cell.
+     */
+    private int mirrorIndex(int index) {
+        return (COLUMNS - 1 - index / HEIGHT) * HEIGHT + index % HEIGHT;
+    }
+
+    /**
+     * Returns the bit position of a square in the bitboards.
+     */
+    private int bitIndex(int row, int col) {
+        return col * HEIGHT + (ROWS - 1 - row);
+    }
+
+    /**
+     * Orders the columns from the center outwards, left before right.
+     */
+    private int[] buildPreferredColumns() {
+        int[] columns = new int[COLUMNS];
+        for (int i = 0; i < COLUMNS; i++) {
+            columns[i] = COLUMNS / 2 + (i % 2 == 0 ? i / 2 : -(i + 1) / 2);
+        }
+        return columns;
+    }
+
+    private long[][] buildWinMasks(int words) {
+        List<long[]> masks = new ArrayList<>();
+        int[][] directions = {
+                {0, 1},
+                {1, 0},
+                {1, 1},
+                {1, -1}
+        };
+        for (int row = 0; row < ROWS; row++) {
+            for (int col = 0; col < COLUMNS; col++) {
+                for (int[] direction : directions) {
+                    int endRow = row + direction[0] * (WINCOUNT - 1);
+                    int endCol = col + direction[1] * (WINCOUNT - 1);
+                    if (endRow < 0 || endRow >= ROWS || endCol < 0 || endCol >= COLUMNS) continue;
+
+                    long[] mask = new long[words];
+                    for (int i = 0; i < WINCOUNT; i++) {
+                        int index = bitIndex(row + direction[0] * i, col + direction[1] * i);
+                        mask[index >>> 6] |= 1L << index;
+                    }
+                    masks.add(mask);
                 }
             }
         }
+        return masks.toArray(new long[0][]);
+    }
 
-        return moves;
+    private int[][] buildCellWindows() {
+        int[][] cellWindows = new int[COLUMNS * HEIGHT][];
+        for (int index = 0; index < cellWindows.length; index++) {
+            List<Integer> windows = new ArrayList<>();
+            for (int window = 0; window < winMasks.length; window++) {
+                if ((winMasks[window][index >>> 6] & (1L << index)) != 0) windows.add(window);
+            }
+            cellWindows[index] = windows.stream().mapToInt(Integer::intValue).toArray();
+        }
+        return cellWindows;
     }
 
-    public boolean markedSquare(Square square) {
-        return board.containsKey(square);
+    private int[] buildWindowScores() {
+        int[] windowScores = new int[(WINCOUNT + 1) * (WINCOUNT + 1)];
+        for (int xCount = 0; xCount <= WINCOUNT; xCount++) {
+            for (int oCount = 0; xCount + oCount <= WINCOUNT; oCount++) {
+                windowScores[windowIndex(xCount, oCount)] =
+                        evaluateWindow(xCount, oCount) - evaluateWindow(oCount, xCount);
+            }
+        }
+        return windowScores;
+    }
+
+    private long[] buildZobristKeys(long seed) {
+        SplittableRandom random = new SplittableRandom(seed);
+        long[] keys = new long[COLUMNS * HEIGHT];
+        for (int index = 0; index < keys.length; index++) {
+            keys[index] = random.nextLong();
+        }
+        return keys;
+    }
+
+    private Square[] buildSquares() {
+        Square[] squares = new Square[COLUMNS * HEIGHT];
+        for (int row = 0; row < ROWS; row++) {
+            for (int col = 0; col < COLUMNS; col++) {
+                squares[bitIndex(row, col)] = new Square(row, col);
+            }
+        }
+        return squares;
     }
 
     public void printBoard() {
@@ -159,21 +575,19 @@ public class ConnectFour implements Game<Square>{
         System.out.print("   ");
 
         for (int col = 0; col < COLUMNS; col++) {
-            System.out.print(" " + col + "  ");
+            System.out.printf(" %-2d ", col);
         }
 
         System.out.println();
 
         for (int row = 0; row < ROWS; row++) {
-            System.out.print(" " + row + " ");
+            System.out.printf("%2d ", row);
             for (int col = 0; col < COLUMNS; col++) {
-                Square square = new Square(row, col);
-                if (board.containsKey(square)) {
-                    if (board.get(square) == Mark.X) {
-                        System.out.print(" " + RED + "X" + RESET + " ");
-                    } else {
-                        System.out.print(" " + CYAN + "O" + RESET + " ");
-                    }
+                Mark mark = markAt(bitIndex(row, col));
+                if (mark == Mark.X) {
+                    System.out.print(" " + RED + "X" + RESET + " ");
+                } else if (mark == Mark.O) {
+                    System.out.print(" " + CYAN + "O" + RESET + " ");
                 } else {
                     System.out.print("   ");
                 }
@@ -49,4 +49,13 @@ public interface Game<A> {
      *               false if by the MIN player
      */
     void undo(A move, boolean isMax);
+
+    /**
+     * Creates an independent copy of the current game state, so that
+     * several threads can search from the same position at once.
+     * Moves applied to the copy do not affect this game, and vice versa.
+     *
+     * @return a copy of this game
+     */
+    Game<A> copy();
 }
@@ -0,0 +1,36 @@
+package problems;
+
+/**
+ * A game that maintains a Zobrist hash of its current state, so that
+ * search algorithms can recognize positions reached through different
+ * move orders (transpositions).
+ *
+ * @param <A> the type representing a move or action in the game
+ */
+public interface HashedGame<A> extends Game<A> {
+    /**
+     * Returns the Zobrist hash of the current state. The hash is kept up to
+     * date by execute and undo, so calling this is constant-time.
+     *
+     * @return a 64-bit key identifying the current board
+     */
+    long hashKey();
+
+    /**
+     * Encodes a move as a small non-negative integer, so that it can be
+     * stored in primitive tables. Two moves that place a mark on the same
+     * spot must get the same id.
+     *
+     * @param move the move to encode
+     * @return the id of the move
+     */
+    int moveId(A move);
+
+    /**
+     * Returns the number of distinct move ids: every id returned by
+     * moveId lies between 0 (inclusive) and this value (exclusive).
+     *
+     * @return the size of a table indexed by move id
+     */
+    int moveIdCount();
+}
@@ -0,0 +1,69 @@
+package problems;
+
+/**
+ * A turn-based game whose moves are encoded as small non-negative ints,
+ * for searches that must not allocate anything per position.
+ *
+ * This is a primitive counterpart of Game: instead of returning a new list
+ * of move objects, generateMoves fills an array owned by the caller.
+ * A game implementing both interfaces uses the same encoding as its
+ * HashedGame#moveId, so results can be converted back to move objects.
+ */
+public interface IntMoveGame {
+    /**
+     * Writes every legal move from the current state into the given buffer,
+     * most promising first.
+     *
+     * @param moves a buffer of at least moveIdCount() elements
+     * @return the number of moves written
+     */
+    int generateMoves(int[] moves);
+
+    /**
+     * Computes the utility of the current game state.
+     *
+     * @return an integer utility value: higher means better for the MAX player
+     */
+    int utility();
+
+    /**
+     * Checks whether the game is over.
+     *
+     * @return true if the current state is terminal; false otherwise
+     */
+    boolean isTerminal();
+
+    /**
+     * Applies the given move to the current game state.
+     *
+     * @param move   the encoded move to apply
+     * @param isMax  true if the move is by the MAX player,
+     *               false if by the MIN player
+     */
+    void execute(int move, boolean isMax);
+
+    /**
+     * Undoes the most recent move, restoring the previous game state.
+     *
+     * @param move   the encoded move to undo
+     * @param isMax  true if the move was by the MAX player
+     *               false if by the MIN player
+     */
+    void undo(int move, boolean isMax);
+
+    /**
+     * Returns the Zobrist hash of the current state.
+     *
+     * @return a 64-bit key identifying the current board
+     */
+    long hashKey();
+
+    /**
+     * Returns the number of distinct encoded moves: every move lies between
+     * 0 (inclusive) and this value (exclusive). This is also an upper bound
+     * on the number of legal moves in any state.
+     *
+     * @return the size of a table indexed by move
+     */
+    int moveIdCount();
+}
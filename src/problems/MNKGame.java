@@ -0,0 +1,462 @@
+package problems;
+
+import java.util.*;
+
+/**
+ * Represents an m,n,k-game: two players take turns marking the squares of
+ * an m x n board, and the first to get k marks in a row (horizontally,
+ * vertically or diagonally) wins. 3,3,3 is Tic-Tac-Toe and 15,15,5 is Gomoku.
+ *
+ * Large boards stay searchable because the game only generates candidate
+ * moves: the empty squares within a small distance of a mark (the center
+ * of the board when it is empty). Far-away squares are almost never good
+ * moves, so the branching factor depends on the marks played rather than
+ * on the board area. The candidates are maintained by execute and undo.
+ *
+ * As in ConnectFour, the heuristic score and the win status are never
+ * recomputed from the board: execute and undo update per-line mark
+ * counters for the lines of k squares through the played square. A line
+ * holding marks of a single player is a threat whose value grows
+ * geometrically with the number of marks.
+ *
+ * Moves can be given either as a Square (Game) or as the square's index
+ * row * columns + column (IntMoveGame); toSquare converts between the two.
+ *
+ * Assumptions:
+ * - 'X' is the MAX player (human)
+ * - 'O' is the MIN player (AI)
+ */
+public class MNKGame implements HashedGame<Square>, IntMoveGame {
+
+    // Largest number of rows or columns, and largest k, for which heuristic scores stay below WIN_SCORE
+    public static final int MAX_SIZE = 26;
+    public static final int MAX_K = 8;
+    // Utility of a won game for X; -WIN_SCORE for O
+    public static final int WIN_SCORE = 1_000_000_000;
+    // Candidates are the empty squares at most this many rows and columns away from a mark
+    public static final int DEFAULT_RADIUS = 1;
+
+    private final int rows;
+    private final int columns;
+    private final int k;
+    private final int radius;
+    // The mark on each square in row-major order; null means the square is not marked
+    private final Mark[] board;
+    private int markCount;
+    // Shared Square instance for every square, in row-major order
+    private final Square[] squares;
+    // Indices of the lines of k squares passing through each square
+    private final int[][] cellLines;
+    // Number of X and O marks in each line
+    private final byte[] xCounts;
+    private final byte[] oCounts;
+    // Heuristic value of a line, indexed by xCount * (k + 1) + oCount
+    private final int[] lineScores;
+    // Heuristic value of the board (X's threats minus O's), updated by execute and undo
+    private int score;
+    // Player who completed a line, or null while nobody has won
+    private Mark winner;
+    // Value of markCount right after the winning move, so undo knows when to clear winner
+    private int winningMoveCount;
+    // Number of marks within radius of each square
+    private final short[] nearby;
+    // The candidate moves, in no particular order, and the position of each square in
+    // candidates (-1 if it is not a candidate)
+    private final int[] candidates;
+    private int candidateCount;
+    private final int[] candidateIndex;
+    // Zobrist keys for an X and an O mark on each square
+    private final long[] xKeys;
+    private final long[] oKeys;
+    // Zobrist hash of the board, updated by execute and undo
+    private long hashKey;
+
+    public MNKGame(int rows, int columns, int k) {
+        this(rows, columns, k, DEFAULT_RADIUS);
+    }
+
+    /**
+     * @param rows    the number of rows, m
+     * @param columns the number of columns, n
+     * @param k       the number of marks in a row needed to win
+     * @param radius  how far from the marks candidate moves are generated;
+     *                max(rows, columns) generates every empty square
+     */
+    public MNKGame(int rows, int columns, int k, int radius) {
+        if (rows < 1 || columns < 1 || rows > MAX_SIZE || columns > MAX_SIZE) {
+            throw new IllegalArgumentException("The board must have 1 to " + MAX_SIZE + " rows and columns");
+        }
+        if (k < 2 || k > MAX_K || k > Math.max(rows, columns)) {
+            throw new IllegalArgumentException("k must be between 2 and " + MAX_K + " and fit on the board");
+        }
+        if (radius < 1) {
+            throw new IllegalArgumentException("The radius must be at least 1");
+        }
+        this.rows = rows;
+        this.columns = columns;
+        this.k = k;
+        this.radius = radius;
+        int cells = rows * columns;
+        this.board = new Mark[cells];
+        this.squares = new Square[cells];
+        for (int i = 0; i < cells; i++) {
+            squares[i] = new Square(i / columns, i % columns);
+        }
+        this.cellLines = buildCellLines();
+        int lines = 0;
+        for (int[] through : cellLines) {
+            for (int line : through) lines = Math.max(lines, line + 1);
+        }
+        this.xCounts = new byte[lines];
+        this.oCounts = new byte[lines];
+        this.lineScores = buildLineScores(k);
+        this.nearby = new short[cells];
+        this.candidates = new int[cells];
+        this.candidateIndex = new int[cells];
+        Arrays.fill(candidateIndex, -1);
+        //fixed seed so that hash keys are the same in every run
+        SplittableRandom random = new SplittableRandom(0x5DEECE66DL + ((long) rows << 20) + (columns << 10) + k);
+        this.xKeys = new long[cells];
+        this.oKeys = new long[cells];
+        for (int i = 0; i < cells; i++) {
+            xKeys[i] = random.nextLong();
+            oKeys[i] = random.nextLong();
+        }
+    }
+
+    private MNKGame(MNKGame other) {
+        this.rows = other.rows;
+        this.columns = other.columns;
+        this.k = other.k;
+        this.radius = other.radius;
+        this.board = other.board.clone();
+        this.markCount = other.markCount;
+        //squares, line tables and keys never change, so they can be shared
+        this.squares = other.squares;
+        this.cellLines = other.cellLines;
+        this.xCounts = other.xCounts.clone();
+        this.oCounts = other.oCounts.clone();
+        this.lineScores = other.lineScores;
+        this.score = other.score;
+        this.winner = other.winner;
+        this.winningMoveCount = other.winningMoveCount;
+        this.nearby = other.nearby.clone();
+        this.candidates = other.candidates.clone();
+        this.candidateCount = other.candidateCount;
+        this.candidateIndex = other.candidateIndex.clone();
+        this.xKeys = other.xKeys;
+        this.oKeys = other.oKeys;
+        this.hashKey = other.hashKey;
+    }
+
+    @Override
+    public MNKGame copy() {
+        return new MNKGame(this);
+    }
+
+    /**
+     * Checks if the current state is terminal (win or draw). The win status
+     * is kept up to date by execute and undo, so this is a constant-time check.
+     */
+    @Override
+    public boolean isTerminal() {
+        return winner != null || markCount == board.length;
+    }
+
+    /**
+     * Returns +/-WIN_SCORE for a won game, otherwise the heuristic score of
+     * the board, which execute and undo keep up to date.
+     */
+    @Override
+    public int utility() {
+        if (winner == Mark.X) return WIN_SCORE;
+        if (winner == Mark.O) return -WIN_SCORE;
+        return score;
+    }
+
+    @Override
+    public void execute(Square move, boolean isMax) {
+        execute(moveId(move), isMax);
+    }
+
+    /**
+     * Marks the square with the given index for the player to move.
+     */
+    @Override
+    public void execute(int move, boolean isMax) {
+        board[move] = isMax ? Mark.X : Mark.O;
+        markCount++;
+        hashKey ^= isMax ? xKeys[move] : oKeys[move];
+        removeCandidate(move);
+        updateNearby(move, 1);
+        if (updateLines(move, isMax, 1) && winner == null) {
+            winner = board[move];
+            winningMoveCount = markCount;
+        }
+    }
+
+    @Override
+    public void undo(Square move, boolean isMax) {
+        undo(moveId(move), isMax);
+    }
+
+    /**
+     * Removes the mark on the square with the given index.
+     */
+    @Override
+    public void undo(int move, boolean isMax) {
+        Mark removed = board[move];
+        if (removed == null) {
+            return;
+        }
+        board[move] = null;
+        if (winner != null && markCount == winningMoveCount) {
+            winner = null;
+        }
+        markCount--;
+        hashKey ^= removed == Mark.X ? xKeys[move] : oKeys[move];
+        updateLines(move, removed == Mark.X, -1);
+        updateNearby(move, -1);
+        if (nearby[move] > 0) {
+            addCandidate(move);
+        }
+    }
+
+    /**
+     * Adds or removes a mark in the counters of the lines through a square,
+     * keeping the running score in step.
+     *
+     * @return true if the mark was added and completed a line
+     */
+    private boolean updateLines(int move, boolean isX, int delta) {
+        boolean completed = false;
+        for (int line : cellLines[move]) {
+            score -= lineScores[xCounts[line] * (k + 1) + oCounts[line]];
+            int count;
+            if (isX) {
+                count = xCounts[line] + delta;
+                xCounts[line] = (byte) count;
+            } else {
+                count = oCounts[line] + delta;
+                oCounts[line] = (byte) count;
+            }
+            score += lineScores[xCounts[line] * (k + 1) + oCounts[line]];
+            completed |= count == k;
+        }
+        return completed;
+    }
+
+    /**
+     * Adds delta to the mark count of every square within radius of the given
+     * one, and adds or removes the empty ones from the candidates accordingly.
+     */
+    private void updateNearby(int move, int delta) {
+        int row = move / columns;
+        int col = move % columns;
+        int top = Math.max(0, row - radius);
+        int bottom = Math.min(rows - 1, row + radius);
+        int left = Math.max(0, col - radius);
+        int right = Math.min(columns - 1, col + radius);
+        for (int r = top; r <= bottom; r++) {
+            for (int c = left; c <= right; c++) {
+                int cell = r * columns + c;
+                if (cell == move) continue;
+                nearby[cell] += (short) delta;
+                if (board[cell] != null) continue;
+                if (nearby[cell] == 0) {
+                    removeCandidate(cell);
+                } else if (delta > 0 && nearby[cell] == 1) {
+                    addCandidate(cell);
+                }
+            }
+        }
+    }
+
+    private void addCandidate(int cell) {
+        if (candidateIndex[cell] >= 0) return;
+        candidateIndex[cell] = candidateCount;
+        candidates[candidateCount++] = cell;
+    }
+
+    private void removeCandidate(int cell) {
+        int index = candidateIndex[cell];
+        if (index < 0) return;
+        int last = candidates[--candidateCount];
+        candidates[index] = last;
+        candidateIndex[last] = index;
+        candidateIndex[cell] = -1;
+    }
+
+    /**
+     * Returns the candidate moves: the empty squares near a mark, most
+     * recently added first, or the center square of an empty board.
+     *
+     * @return a list of the candidate squares
+     */
+    @Override
+    public List<Square> getAllRemainingMoves() {
+        if (markCount == 0) {
+            return List.of(squares[centerSquare()]);
+        }
+        List<Square> result = new ArrayList<>(candidateCount);
+        for (int i = candidateCount - 1; i >= 0; i--) {
+            result.add(squares[candidates[i]]);
+        }
+        return result;
+    }
+
+    /**
+     * Writes the indices of the candidate moves (see getAllRemainingMoves), without allocating.
+     *
+     * @param moves a buffer of at least moveIdCount() elements
+     * @return the number of candidate moves
+     */
+    @Override
+    public int generateMoves(int[] moves) {
+        if (markCount == 0) {
+            moves[0] = centerSquare();
+            return 1;
+        }
+        for (int i = 0; i < candidateCount; i++) {
+            moves[i] = candidates[candidateCount - 1 - i];
+        }
+        return candidateCount;
+    }
+
+    private int centerSquare() {
+        return (rows / 2) * columns + columns / 2;
+    }
+
+    /**
+     * Converts the index of a square (an IntMoveGame move) to the square itself.
+     */
+    public Square toSquare(int move) {
+        return squares[move];
+    }
+
+    @Override
+    public long hashKey() {
+        return hashKey;
+    }
+
+    /**
+     * Encodes a square as its index in row-major order.
+     */
+    @Override
+    public int moveId(Square move) {
+        return move.row() * columns + move.column();
+    }
+
+    /**
+     * @return the number of squares on the board
+     */
+    @Override
+    public int moveIdCount() {
+        return board.length;
+    }
+
+    public int getRows() {
+        return rows;
+    }
+
+    public int getColumns() {
+        return columns;
+    }
+
+    /**
+     * @return the number of marks in a row needed to win
+     */
+    public int getK() {
+        return k;
+    }
+
+    /**
+     * @return the number of marks on the board
+     */
+    public int getMarkCount() {
+        return markCount;
+    }
+
+    /**
+     * Checks whether the specified square is currently marked (i.e., occupied by X or O).
+     */
+    public boolean markedSquare(Square square) {
+        return board[moveId(square)] != null;
+    }
+
+    /**
+     * Lists, for every square, the lines of k squares that pass through it.
+     * Lines are numbered direction by direction: horizontal, vertical,
+     * diagonal going down to the right, diagonal going down to the left.
+     */
+    private int[][] buildCellLines() {
+        int[][] directions = {{0, 1}, {1, 0}, {1, 1}, {1, -1}};
+        List<List<Integer>> through = new ArrayList<>();
+        for (int i = 0; i < rows * columns; i++) {
+            through.add(new ArrayList<>());
+        }
+        int line = 0;
+        for (int[] direction : directions) {
+            for (int row = 0; row < rows; row++) {
+                for (int col = 0; col < columns; col++) {
+                    int endRow = row + (k - 1) * direction[0];
+                    int endCol = col + (k - 1) * direction[1];
+                    if (endRow >= rows || endCol < 0 || endCol >= columns) continue;
+                    for (int i = 0; i < k; i++) {
+                        through.get((row + i * direction[0]) * columns + col + i * direction[1]).add(line);
+                    }
+                    line++;
+                }
+            }
+        }
+        int[][] cellLines = new int[rows * columns][];
+        for (int i = 0; i < cellLines.length; i++) {
+            cellLines[i] = through.get(i).stream().mapToInt(Integer::intValue).toArray();
+        }
+        return cellLines;
+    }
+
+    /**
+     * Values a line from its mark counts: 8^(count - 1) for the player owning
+     * all its marks, nothing if both players have marks in it. A completed
+     * line is worth nothing here since utility reports the win instead.
+     */
+    private static int[] buildLineScores(int k) {
+        int[] scores = new int[(k + 1) * (k + 1)];
+        for (int count = 1; count < k; count++) {
+            int value = 1 << (3 * (count - 1));
+            scores[count * (k + 1)] = value;
+            scores[count] = -value;
+        }
+        return scores;
+    }
+
+    /**
+     * Print the board in a neat format
+     */
+    public void printBoard() {
+        String RESET = "\u001B[0m";
+        String RED = "\u001B[31m";
+        String CYAN = "\u001B[36m";
+        //print column headers
+        System.out.print("   ");
+        for (int col = 0; col < columns; col++) {
+            System.out.printf("%3d", col);
+        }
+        System.out.println();
+        for (int row = 0; row < rows; row++) {
+            System.out.printf("%3d", row);
+            for (int col = 0; col < columns; col++) {
+                Mark mark = board[row * columns + col];
+                if (mark == Mark.X) {
+                    System.out.print("  " + RED + mark + RESET);
+                } else if (mark == Mark.O) {
+                    System.out.print("  " + CYAN + mark + RESET);
+                } else {
+                    System.out.print("  .");
+                }
+            }
+            System.out.println();
+        }
+    }
+}
@@ -0,0 +1,67 @@
+package problems;
+
+/**
+ * A hashed game whose board has symmetries: transformations (mirror images,
+ * rotations, ...) that map every position to an equivalent one, with the
+ * same value and the corresponding best moves.
+ *
+ * Besides hashKey, the game maintains the hash key of the board as seen
+ * through each symmetry, so that the canonical key (the smallest of them)
+ * identifies all equivalent positions. A search caching results under the
+ * canonical key stores moves in the canonical frame (mapMove) and maps
+ * them back to the actual board (unmapMove) when reading them.
+ *
+ * @param <A> the type representing a move or action in the game
+ */
+public interface SymmetricGame<A> extends HashedGame<A> {
+    /**
+     * @return the number of symmetries, including the identity (symmetry 0)
+     */
+    int symmetryCount();
+
+    /**
+     * Returns the hash key of the board transformed by a symmetry. Like
+     * hashKey, it is kept up to date by execute and undo.
+     *
+     * @param symmetry the symmetry, between 0 (the identity, whose key is hashKey) and symmetryCount() - 1
+     * @return the hash key of the transformed board
+     */
+    long symmetricKey(int symmetry);
+
+    /**
+     * Maps a move to the corresponding move on the board transformed by a symmetry.
+     *
+     * @param moveId   the id of a move on the actual board (see HashedGame#moveId)
+     * @param symmetry the symmetry
+     * @return the id of the image of the move
+     */
+    int mapMove(int moveId, int symmetry);
+
+    /**
+     * Maps a move on the transformed board back to the actual board; the inverse of mapMove.
+     */
+    int unmapMove(int moveId, int symmetry);
+
+    /**
+     * @return the symmetry with the smallest key, which maps the board to its canonical form
+     */
+    default int canonicalSymmetry() {
+        int best = 0;
+        long bestKey = symmetricKey(0);
+        for (int symmetry = 1; symmetry < symmetryCount(); symmetry++) {
+            long key = symmetricKey(symmetry);
+            if (key < bestKey) {
+                best = symmetry;
+                bestKey = key;
+            }
+        }
+        return best;
+    }
+
+    /**
+     * @return the key shared by all the positions equivalent to the current one
+     */
+    default long canonicalKey() {
+        return symmetricKey(canonicalSymmetry());
+    }
+}
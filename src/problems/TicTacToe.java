@@ -5,37 +5,153 @@ import java.util.*;
 /**
  * Represents a generalized Tic-Tac-Toe game of any board size.
  *
+ * The board is stored as one bitboard per player, bit i standing for the
+ * square with index i in row-major order: a single long per player for
+ * boards of up to 64 squares (BOARD_SIZE <= 8), an array of longs for
+ * larger ones. Every row, column and diagonal has a precomputed mask, so a
+ * player owns a line when its bitboard contains the line's mask, and only
+ * the lines through the square just played need checking.
+ *
+ * Moves can be given either as a Square (Game) or as the square's index
+ * row * BOARD_SIZE + column (IntMoveGame); toSquare converts between the two.
+ *
+ * The board has the 8 symmetries of a square (SymmetricGame): the identity,
+ * the three rotations and the four reflections. The hash key of the board
+ * seen through each of them is maintained alongside hashKey.
+ *
  * Assumptions:
  * - 'X' is the MAX player (human)
  * - 'O' is the MIN player (AI)
  */
-public class TicTacToe implements Game<Square>{
+public class TicTacToe implements SymmetricGame<Square>, IntMoveGame{
 
+    // Number of symmetries of a square board (see transform)
+    private static final int SYMMETRIES = 8;
     // Board size, (e.g., 3 for a 3x3 board)
     private final int BOARD_SIZE;
-    // Internal board representation: maps each occupied square to a mark (X or O)
-    // Note: the map only contains *marked* squares.
-    private final Map<Square,Mark> board;
+    // Squares marked by X and by O, for boards of up to 64 squares
+    private long xBoard;
+    private long oBoard;
+    // Squares marked by X and by O on larger boards, 64 squares per word; null on small boards
+    private final long[] xWords;
+    private final long[] oWords;
+    // Bits of the last (on small boards, the only) word that stand for a square
+    private final long fullMask;
+    // Number of marked squares
+    private int markCount;
+    // Shared Square instance for every square, in row-major order
+    private final Square[] squares;
+    // Squares of every line: the rows, then the columns, the diagonal and the anti-diagonal.
+    // lineMasks is used on small boards, lineWordMasks (indexed by [line][word]) on larger ones.
+    private final long[] lineMasks;
+    private final long[][] lineWordMasks;
+    // Cached result: +1 if X has won, -1 if O has won, 0 otherwise
+    private int winner;
+    // Number of marks on the board right after the winning move
+    private int winningMoveCount;
+    // Zobrist keys for an X and an O mark on each square, indexed by row * BOARD_SIZE + column
+    private final long[] xKeys;
+    private final long[] oKeys;
+    // Zobrist hash of the board, updated by execute and undo
+    private long hashKey;
+    // Image of every square under each symmetry, and the inverse mapping, indexed by [symmetry][square]
+    private final int[][] transforms;
+    private final int[][] inverseTransforms;
+    // Zobrist hash of the board transformed by each symmetry; symmetryKeys[0] is unused (hashKey)
+    private final long[] symmetryKeys;
 
     public TicTacToe(int size) {
         this.BOARD_SIZE = size;
-        this.board = new HashMap<>();
+        int cells = size * size;
+        this.squares = new Square[cells];
+        for (int i = 0; i < cells; i++) {
+            squares[i] = new Square(i / size, i % size);
+        }
+        boolean small = cells <= Long.SIZE;
+        int words = (cells + Long.SIZE - 1) / Long.SIZE;
+        this.xWords = small ? null : new long[words];
+        this.oWords = small ? null : new long[words];
+        this.fullMask = -1L >>> (words * Long.SIZE - cells);
+        this.lineWordMasks = new long[2 * size + 2][words];
+        for (int i = 0; i < size; i++) {
+            setBit(lineWordMasks[2 * size], i * size + i);
+            setBit(lineWordMasks[2 * size + 1], i * size + (size - 1 - i));
+            for (int j = 0; j < size; j++) {
+                setBit(lineWordMasks[i], i * size + j);
+                setBit(lineWordMasks[size + i], j * size + i);
+            }
+        }
+        this.lineMasks = new long[lineWordMasks.length];
+        for (int line = 0; line < lineMasks.length; line++) {
+            lineMasks[line] = lineWordMasks[line][0];
+        }
+        //fixed seed so that hash keys are the same in every run
+        SplittableRandom random = new SplittableRandom(0x5DEECE66DL + size);
+        this.xKeys = new long[size * size];
+        this.oKeys = new long[size * size];
+        for (int i = 0; i < size * size; i++) {
+            xKeys[i] = random.nextLong();
+            oKeys[i] = random.nextLong();
+        }
+        this.transforms = new int[SYMMETRIES][size * size];
+        this.inverseTransforms = new int[SYMMETRIES][size * size];
+        for (int symmetry = 0; symmetry < SYMMETRIES; symmetry++) {
+            for (int i = 0; i < size * size; i++) {
+                int image = transform(i / size, i % size, symmetry);
+                transforms[symmetry][i] = image;
+                inverseTransforms[symmetry][image] = i;
+            }
+        }
+        this.symmetryKeys = new long[SYMMETRIES];
+    }
+
+    private TicTacToe(TicTacToe other) {
+        this.BOARD_SIZE = other.BOARD_SIZE;
+        this.xBoard = other.xBoard;
+        this.oBoard = other.oBoard;
+        this.xWords = other.xWords == null ? null : other.xWords.clone();
+        this.oWords = other.oWords == null ? null : other.oWords.clone();
+        this.fullMask = other.fullMask;
+        this.markCount = other.markCount;
+        //Square records and the line masks are immutable, so they can be shared
+        this.squares = other.squares;
+        this.lineMasks = other.lineMasks;
+        this.lineWordMasks = other.lineWordMasks;
+        this.winner = other.winner;
+        this.winningMoveCount = other.winningMoveCount;
+        //the keys never change, so they can be shared
+        this.xKeys = other.xKeys;
+        this.oKeys = other.oKeys;
+        this.hashKey = other.hashKey;
+        this.transforms = other.transforms;
+        this.inverseTransforms = other.inverseTransforms;
+        this.symmetryKeys = other.symmetryKeys.clone();
+    }
+
+    /**
+     * Creates an independent copy of the current board.
+     *
+     * @return a copy of this game
+     */
+    public TicTacToe copy(){
+        return new TicTacToe(this);
     }
 
     /**
      * Checks if the current state is terminal (win or draw).
+     * The win status is kept up to date by execute and undo,
+     * so this is a constant-time check.
      *
      * @return true if a player has won or the board is full (draw),
      *         false otherwise
      */
     public boolean isTerminal(){
-        int utility = utility();
         //A player has won the game.
-        if (utility == 1 || utility == -1){
+        if (winner != 0){
             return true;
         }
         //Game is either a draw or unfinished
-        return board.size() == BOARD_SIZE * BOARD_SIZE;
+        return markCount == BOARD_SIZE * BOARD_SIZE;
     }
 
 
@@ -47,11 +163,30 @@ public class TicTacToe implements Game<Square>{
      *              false for MIN (O)
      */
     public void execute(Square move, boolean isMax){
-        if(isMax) {
-            board.put(move, Mark.X);
+        execute(moveId(move), isMax);
+    }
+
+    /**
+     * Applies a move to the board, placing an X or O depending on the player.
+     *
+     * @param move  the index of the square to place the mark
+     * @param isMax true if it's the MAX player's move (X),
+     *              false for MIN (O)
+     */
+    public void execute(int move, boolean isMax){
+        if (xWords == null) {
+            if (isMax) xBoard |= 1L << move;
+            else oBoard |= 1L << move;
+        } else {
+            setBit(isMax ? xWords : oWords, move);
         }
-        else{
-            board.put(move, Mark.O);
+        markCount++;
+        hashKey ^= isMax ? xKeys[move] : oKeys[move];
+        updateSymmetryKeys(move, isMax ? xKeys : oKeys);
+        //Only the lines through the new mark can have been completed
+        if (winner == 0 && completesLine(move, isMax)) {
+            winner = isMax ? 1 : -1;
+            winningMoveCount = markCount;
         }
     }
 
@@ -64,97 +199,125 @@ public class TicTacToe implements Game<Square>{
      *              false if by the MIN player
      */
     public void undo(Square move, boolean isMax){
-        board.remove(move);
-
+        undo(moveId(move), isMax);
     }
 
     /**
-     * Computes the utility of the current game state.
+     * Undoes a previous move.
      *
-     * @return +1 if X player wins,
-     *         -1 if O player wins,
-     *         0 otherwise
+     * @param move  the index of the square to unmark
+     * @param isMax true if the move was by the MAX player
+     *              false if by the MIN player
      */
-    public int utility(){
-        //check rows
-        for(int row=0; row<BOARD_SIZE; row++) {
-            int rowSum = 0;
-            for (int col = 0; col<BOARD_SIZE; col++) {
-                Square square = new Square(row, col);
-                //When comparing enum values in Java, always use ==, not equals()
-                if (board.containsKey(square)) {
-                    if (board.get(square) == Mark.X) {
-                        rowSum++;
-                    } else {
-                        rowSum--;
-                    }
-                }
-            }
-            if (rowSum == BOARD_SIZE) {
-                return 1;
-            } else if (rowSum == - BOARD_SIZE) {
-                return -1;
-            }
+    public void undo(int move, boolean isMax){
+        Mark removed = markAt(move);
+        if (removed == null) {
+            return;
+        }
+        if (xWords == null) {
+            xBoard &= ~(1L << move);
+            oBoard &= ~(1L << move);
+        } else {
+            xWords[move >>> 6] &= ~(1L << move);
+            oWords[move >>> 6] &= ~(1L << move);
         }
+        if (winner != 0 && markCount == winningMoveCount) {
+            winner = 0;
+        }
+        markCount--;
+        hashKey ^= removed == Mark.X ? xKeys[move] : oKeys[move];
+        updateSymmetryKeys(move, removed == Mark.X ? xKeys : oKeys);
+    }
 
-        //check columns
-        for(int col=0; col<BOARD_SIZE; col++) {
-            int colSum = 0;
-            for (int row = 0; row<BOARD_SIZE; row++) {
-                Square square = new Square(row, col);
-                if (board.containsKey(square)) {
-                    if (board.get(square) == Mark.X) {
-                        colSum++;
-                    } else {
-                        colSum--;
-                    }
-                }
-            }
-            if (colSum == BOARD_SIZE) {
-                return 1;
-            } else if (colSum == - BOARD_SIZE) {
-                return -1;
-            }
+    /**
+     * Returns the mark on a square, or null if it is empty.
+     */
+    private Mark markAt(int square) {
+        long bit = 1L << square;
+        if (xWords == null) {
+            if ((xBoard & bit) != 0) return Mark.X;
+            return (oBoard & bit) != 0 ? Mark.O : null;
         }
+        if ((xWords[square >>> 6] & bit) != 0) return Mark.X;
+        return (oWords[square >>> 6] & bit) != 0 ? Mark.O : null;
+    }
 
-        //check diagonal -- top left to bottom right
-        int diaSum = 0;
-        for(int d=0; d<BOARD_SIZE; d++) {
-            Square square = new Square(d, d);
-            if (board.containsKey(square)) {
-                if (board.get(square) == Mark.X) {
-                    diaSum++;
-                } else {
-                    diaSum--;
-                }
-            }
+    private static void setBit(long[] words, int square) {
+        words[square >>> 6] |= 1L << square;
+    }
+
+    /**
+     * Toggles a mark on the given square in the hash key of every transformed board.
+     */
+    private void updateSymmetryKeys(int move, long[] keys) {
+        for (int symmetry = 1; symmetry < SYMMETRIES; symmetry++) {
+            symmetryKeys[symmetry] ^= keys[transforms[symmetry][move]];
+        }
+    }
+
+    /**
+     * Returns the index of the image of square (row, col) under a symmetry:
+     * 0 is the identity, 1 to 3 rotate by 90, 180 and 270 degrees, 4 and 5
+     * mirror left-right and top-bottom, 6 and 7 mirror along the diagonals.
+     */
+    private int transform(int row, int col, int symmetry) {
+        int last = BOARD_SIZE - 1;
+        return switch (symmetry) {
+            case 0 -> row * BOARD_SIZE + col;
+            case 1 -> col * BOARD_SIZE + (last - row);
+            case 2 -> (last - row) * BOARD_SIZE + (last - col);
+            case 3 -> (last - col) * BOARD_SIZE + row;
+            case 4 -> row * BOARD_SIZE + (last - col);
+            case 5 -> (last - row) * BOARD_SIZE + col;
+            case 6 -> col * BOARD_SIZE + row;
+            case 7 -> (last - col) * BOARD_SIZE + (last - row);
+            default -> throw new IllegalArgumentException("No such symmetry: " + symmetry);
+        };
+    }
+
+    /**
+     * Checks whether the player who marked the given square owns a whole line through it.
+     */
+    private boolean completesLine(int move, boolean isX) {
+        int row = move / BOARD_SIZE;
+        int col = move % BOARD_SIZE;
+        if (ownsLine(row, isX) || ownsLine(BOARD_SIZE + col, isX)) {
+            return true;
         }
-        if (diaSum == BOARD_SIZE) {
-            return 1;
-        } else if (diaSum == - BOARD_SIZE) {
-            return -1;
+        if (row == col && ownsLine(2 * BOARD_SIZE, isX)) {
+            return true;
         }
+        return row + col == BOARD_SIZE - 1 && ownsLine(2 * BOARD_SIZE + 1, isX);
+    }
 
-        //check diagonal -- top right to bottom left
-        diaSum = 0;
-        for(int d=0; d<BOARD_SIZE; d++) {
-            Square square = new Square(d, BOARD_SIZE - 1 - d);
-            if (board.containsKey(square)) {
-                if (board.get(square) == Mark.X) {
-                    diaSum++;
-                } else {
-                    diaSum--;
-                }
-            }
+    /**
+     * Checks whether every square of a line (an index into lineMasks) is marked by the player.
+     */
+    private boolean ownsLine(int line, boolean isX) {
+        if (xWords == null) {
+            long mask = lineMasks[line];
+            return ((isX ? xBoard : oBoard) & mask) == mask;
         }
-        if (diaSum == BOARD_SIZE) {
-            return 1;
-        } else if (diaSum == - BOARD_SIZE) {
-            return -1;
+        long[] words = isX ? xWords : oWords;
+        long[] masks = lineWordMasks[line];
+        for (int i = 0; i < masks.length; i++) {
+            if ((words[i] & masks[i]) != masks[i]) {
+                return false;
+            }
         }
+        return true;
+    }
 
-        //no one has won yet; either a draw, or unfinished
-        return 0;
+    /**
+     * Computes the utility of the current game state.
+     *
+     * @return +1 if X player wins,
+     *         -1 if O player wins,
+     *         0 otherwise
+     */
+    public int utility(){
+        //no one has won yet when winner is 0; either a draw, or unfinished
+        return winner;
     }
 
 
@@ -164,19 +327,119 @@ public class TicTacToe implements Game<Square>{
      * @return a list of all empty squares
      */
     public List<Square> getAllRemainingMoves(){
-        List<Square> result = new ArrayList<>();
-        for(int row=0; row<BOARD_SIZE; row++){
-            for(int col=0; col<BOARD_SIZE; col++){
-                Square square = new Square(row, col);
-                if(!board.containsKey(square)) {
-                    //this square is not marked
-                    result.add(square);
-                }
+        List<Square> result = new ArrayList<>(BOARD_SIZE * BOARD_SIZE - markCount);
+        if (xWords == null) {
+            //visit the unmarked squares only, lowest index first
+            for (long empty = ~(xBoard | oBoard) & fullMask; empty != 0; empty &= empty - 1) {
+                result.add(squares[Long.numberOfTrailingZeros(empty)]);
+            }
+            return result;
+        }
+        for (int word = 0; word < xWords.length; word++) {
+            for (long empty = emptySquares(word); empty != 0; empty &= empty - 1) {
+                result.add(squares[word * Long.SIZE + Long.numberOfTrailingZeros(empty)]);
             }
         }
         return result;
     }
 
+    /**
+     * Writes the indices of all empty squares, in row-major order, without allocating.
+     *
+     * @param moves a buffer of at least BOARD_SIZE * BOARD_SIZE elements
+     * @return the number of empty squares
+     */
+    public int generateMoves(int[] moves){
+        int count = 0;
+        if (xWords == null) {
+            for (long empty = ~(xBoard | oBoard) & fullMask; empty != 0; empty &= empty - 1) {
+                moves[count++] = Long.numberOfTrailingZeros(empty);
+            }
+            return count;
+        }
+        for (int word = 0; word < xWords.length; word++) {
+            for (long empty = emptySquares(word); empty != 0; empty &= empty - 1) {
+                moves[count++] = word * Long.SIZE + Long.numberOfTrailingZeros(empty);
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Returns the unmarked squares among the 64 of one word of a large board.
+     */
+    private long emptySquares(int word) {
+        long empty = ~(xWords[word] | oWords[word]);
+        return word == xWords.length - 1 ? empty & fullMask : empty;
+    }
+
+    /**
+     * Converts the index of a square (an IntMoveGame move) to the square itself.
+     *
+     * @param move row * BOARD_SIZE + column
+     * @return the square with that index
+     */
+    public Square toSquare(int move){
+        return squares[move];
+    }
+
+
+    /**
+     * Returns the Zobrist hash of the current board.
+     *
+     * @return a 64-bit key identifying the current board
+     */
+    public long hashKey(){
+        return hashKey;
+    }
+
+    /**
+     * @return 8: the identity, three rotations and four reflections
+     */
+    public int symmetryCount(){
+        return SYMMETRIES;
+    }
+
+    /**
+     * Returns the Zobrist hash of the board transformed by a symmetry.
+     *
+     * @param symmetry the symmetry (see transform); 0 gives hashKey
+     * @return a 64-bit key identifying the transformed board
+     */
+    public long symmetricKey(int symmetry){
+        return symmetry == 0 ? hashKey : symmetryKeys[symmetry];
+    }
+
+    /**
+     * @return the index of the image of a square under a symmetry
+     */
+    public int mapMove(int move, int symmetry){
+        return transforms[symmetry][move];
+    }
+
+    /**
+     * @return the index of the square whose image under a symmetry is the given one
+     */
+    public int unmapMove(int move, int symmetry){
+        return inverseTransforms[symmetry][move];
+    }
+
+    /**
+     * Encodes a square as its index in row-major order.
+     *
+     * @param move the square to encode
+     * @return row * BOARD_SIZE + column
+     */
+    public int moveId(Square move){
+        return move.row() * BOARD_SIZE + move.column();
+    }
+
+    /**
+     * @return the number of squares on the board
+     */
+    public int moveIdCount(){
+        return BOARD_SIZE * BOARD_SIZE;
+    }
 
     /**
      * Checks whether the specified square is currently marked (i.e., occupied by X or O).
@@ -186,7 +449,7 @@ public class TicTacToe implements Game<Square>{
      *         false if it's still empty
      */
     public boolean markedSquare(Square square){
-        return board.containsKey(square);
+        return markAt(moveId(square)) != null;
     }
 
     /**
@@ -207,12 +470,12 @@ public class TicTacToe implements Game<Square>{
             System.out.print(" " + i + " ");
             //print each cell in the row
             for (int j = 0; j < BOARD_SIZE; j++) {
-                Square square = new Square(i, j);
-                if (board.containsKey(square)) {
-                    if(board.get(square)==Mark.X) {
-                        System.out.print(" " + RED+ board.get(square) + RESET + " ");
+                Mark mark = markAt(i * BOARD_SIZE + j);
+                if (mark != null) {
+                    if(mark==Mark.X) {
+                        System.out.print(" " + RED+ mark + RESET + " ");
                     }else{
-                        System.out.print(" " + CYAN + board.get(square) + RESET + " ");
+                        System.out.print(" " + CYAN + mark + RESET + " ");
                     }
                 } else {
                     System.out.print(" " + " "+" ");
@@ -0,0 +1,228 @@
+package solutions;
+
+import core_algorithms.MinimaxPrune;
+import problems.ConnectFour;
+import problems.Square;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Collectors;
+
+/**
+ * Analyzes Connect Four positions in batch, without the interactive runner.
+ *
+ * Reads one position per line, as the sequence of columns played (X moves
+ * first, e.g., "3324"), from a file or standard input, searches each one
+ * with MinimaxPrune for the player to move, and writes one tab-separated
+ * line per position, in input order:
+ *
+ *   moves, side to move, best column, score (for X), principal variation
+ *
+ * or "moves, error, message" for lines that are not a playable position.
+ *
+ * Positions are searched in parallel on a fixed pool of workers, each
+ * with its own board and search (and transposition table, cleared for
+ * every position so that results do not depend on scheduling). Memory
+ * stays bounded: the reader blocks once a fixed number of positions are
+ * waiting to be written, so the input is never loaded as a whole.
+ *
+ * Usage: BatchAnalyzer [--depth=plies | --time=ms] [--threads=n] [--table=MB] [input file]
+ */
+public class BatchAnalyzer {
+
+    // Positions read but not yet written, per worker thread
+    private static final int PENDING_PER_THREAD = 4;
+
+    /**
+     * Searches positions on one worker thread, reusing the same board and search.
+     */
+    private static class Worker {
+        private final ConnectFour game = new ConnectFour();
+        private final MinimaxPrune<Square> search;
+        // Columns of the position currently on the board, X first
+        private int[] played = new int[0];
+
+        Worker(long tableBytes) {
+            search = new MinimaxPrune<>(game, tableBytes);
+        }
+
+        String analyze(String moves, int depth, Duration budget) {
+            int[] columns;
+            try {
+                columns = setUp(moves);
+            } catch (IllegalArgumentException e) {
+                return moves + "\terror\t" + e.getMessage();
+            }
+            boolean isMax = columns.length % 2 == 0;
+            search.clearTable();
+            if (budget == null) {
+                search.minimaxSearch(depth, isMax);
+            } else {
+                search.minimaxSearch(budget, isMax);
+            }
+            MinimaxPrune.ScoreMove<Square> result = search.getLastResult();
+            String line = result.pathOfMoves().stream()
+                    .map(square -> String.valueOf(square.column()))
+                    .collect(Collectors.joining());
+            return moves + "\t" + (isMax ? "X" : "O") + "\t" + result.pathOfMoves().get(0).column()
+                    + "\t" + result.score() + "\t" + line;
+        }
+
+        /**
+         * Takes back the previous position and plays the given one.
+         *
+         * @return the columns played
+         * @throws IllegalArgumentException if the moves are not a playable position
+         */
+        private int[] setUp(String moves) {
+            for (int i = played.length - 1; i >= 0; i--) {
+                game.undo(played[i], i % 2 == 0);
+            }
+            played = new int[0];
+
+            int[] columns = new int[moves.length()];
+            int count = 0;
+            try {
+                for (char c : moves.toCharArray()) {
+                    int column = c - '0';
+                    if (column < 0 || column >= game.moveIdCount()) {
+                        throw new IllegalArgumentException("not a column: " + c);
+                    }
+                    if (game.isTerminal()) {
+                        throw new IllegalArgumentException("game over after " + count + " moves");
+                    }
+                    if (game.markedSquare(new Square(0, column))) {
+                        throw new IllegalArgumentException("column " + column + " is full");
+                    }
+                    game.execute(column, count % 2 == 0);
+                    columns[count++] = column;
+                }
+                if (game.isTerminal()) {
+                    throw new IllegalArgumentException("game over");
+                }
+            } finally {
+                played = Arrays.copyOf(columns, count);
+            }
+            return columns;
+        }
+    }
+
+    public static void main(String[] args) throws IOException, InterruptedException {
+        int depth = 8;
+        Duration budget = null;
+        int threads = Runtime.getRuntime().availableProcessors();
+        long tableBytes = 4L << 20;
+        Path input = null;
+        for (String arg : args) {
+            String value = arg.substring(arg.indexOf('=') + 1);
+            if (arg.startsWith("--depth=")) depth = Integer.parseInt(value);
+            else if (arg.startsWith("--time=")) budget = Duration.ofMillis(Long.parseLong(value));
+            else if (arg.startsWith("--threads=")) threads = Integer.parseInt(value);
+            else if (arg.startsWith("--table=")) tableBytes = Long.parseLong(value) << 20;
+            else if (arg.startsWith("--")) throw new IllegalArgumentException("Unknown argument: " + arg);
+            else input = Path.of(arg);
+        }
+
+        try (BufferedReader reader = input == null
+                ? new BufferedReader(new InputStreamReader(System.in, StandardCharsets.UTF_8))
+                : Files.newBufferedReader(input);
+             Writer writer = new BufferedWriter(new OutputStreamWriter(System.out, StandardCharsets.UTF_8))) {
+            analyze(reader, writer, depth, budget, threads, tableBytes);
+        }
+    }
+
+    /**
+     * Analyzes every line of the reader and writes the results in the same order.
+     *
+     * @param depth  the search depth, used when budget is null
+     * @param budget the time allowed per position, or null to search to depth
+     */
+    public static void analyze(BufferedReader reader, Writer writer, int depth, Duration budget,
+                               int threads, long tableBytes) throws IOException, InterruptedException {
+        ThreadLocal<Worker> workers = ThreadLocal.withInitial(() -> new Worker(tableBytes));
+        // results in input order; its capacity bounds how far reading runs ahead of writing
+        BlockingQueue<Pending> pending = new ArrayBlockingQueue<>(threads * PENDING_PER_THREAD);
+        Pending end = new Pending("", CompletableFuture.completedFuture(null));
+
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        IOException[] outputFailure = new IOException[1];
+        Thread output = new Thread(() -> outputFailure[0] = write(pending, end, writer), "batch-output");
+        output.start();
+        try {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                String moves = line.strip();
+                if (moves.isEmpty()) continue;
+                pending.put(new Pending(moves, pool.submit(() -> workers.get().analyze(moves, depth, budget))));
+            }
+        } finally {
+            pending.put(end);
+            output.join();
+            pool.shutdown();
+        }
+        if (outputFailure[0] != null) {
+            throw outputFailure[0];
+        }
+    }
+
+    /**
+     * The result of one input line, with its moves for the error line if the analysis fails.
+     */
+    private record Pending(String moves, Future<String> result) {}
+
+    /**
+     * Writes the results as they complete, in queue order, until the end marker.
+     * Output is flushed whenever the next result is not ready yet. After a
+     * write error, keeps taking results (so that the reader never blocks)
+     * without writing them.
+     *
+     * @return the first write error, or null
+     */
+    private static IOException write(BlockingQueue<Pending> pending, Pending end, Writer writer) {
+        IOException failure = null;
+        while (true) {
+            Pending next;
+            try {
+                Pending head = pending.peek();
+                if (failure == null && (head == null || !head.result().isDone())) {
+                    writer.flush();
+                }
+                next = pending.take();
+                if (next == end) {
+                    if (failure == null) writer.flush();
+                    return failure;
+                }
+                if (failure != null) continue;
+                String result;
+                try {
+                    result = next.result().get();
+                } catch (ExecutionException e) {
+                    result = next.moves() + "\terror\t" + e.getCause();
+                }
+                writer.write(result);
+                writer.write(System.lineSeparator());
+            } catch (IOException e) {
+                failure = e;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return failure;
+            }
+        }
+    }
+}
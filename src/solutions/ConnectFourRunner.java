@@ -1,23 +1,74 @@
 package solutions;
 
+import core_algorithms.IntMinimaxPrune;
+import core_algorithms.IntMoveSearch;
+import core_algorithms.KillerHistoryOrdering;
 import core_algorithms.MinimaxPrune;
+import core_algorithms.MonteCarloTreeSearch;
+import core_algorithms.PersistentTable;
+import core_algorithms.Ponderer;
+import core_algorithms.SearchStats;
+import core_algorithms.TranspositionTable;
 import problems.ConnectFour;
 import problems.Mark;
 import problems.Square;
 
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.Duration;
 import java.util.Scanner;
 
 public class ConnectFourRunner extends MinimaxPrune<Square> {
 
-    private static final int ROWS = 6;
-    private static final int COLUMNS = 7;
+    // Size of a new search cache file: 64 MB
+    private static final long CACHE_BYTES = 64L << 20;
+    // Playouts per AI move of Monte Carlo tree search when there is no time budget
+    private static final long MCTS_PLAYOUTS = 200_000;
     private Mark turn = Mark.O;
     private final ConnectFour game;
     private final int DEPTH_LIMIT = 8;
+    // Time allowed per AI move; when null, the AI searches to DEPTH_LIMIT instead
+    private final Duration timeBudget;
+    // Precomputed opening moves, tried before searching; null when there is no book
+    private final OpeningBook book;
+    // Plays perfectly instead of searching when set; null to search
+    private final ConnectFourSolver solver;
+    // Searches the answers to the human's moves while they think; null when pondering is off
+    private final Ponderer<Square> ponderer;
+    // The human's last move, whose pondered answer the AI looks up
+    private Square lastUserMove;
+    // Search results kept across runs, flushed after every AI move; null when there is none
+    private PersistentTable cache;
+    // Plays by Monte Carlo tree search instead of minimax when set; null to use minimax
+    private MonteCarloTreeSearch<Square> monteCarlo;
+    // Runs the minimax searches on encoded moves when set; null to search with this MinimaxPrune
+    private IntMoveSearch<Square> intSearch;
 
     public ConnectFourRunner(ConnectFour game) {
-        super(game);
+        this(game, null, null, null, false);
+    }
+
+    /**
+     * @param ponder whether to search the answers to the human's moves while
+     *               they think; ignored when the solver plays
+     */
+    public ConnectFourRunner(ConnectFour game, Duration timeBudget, OpeningBook book, ConnectFourSolver solver,
+                             boolean ponder) {
+        this(game, timeBudget, book, solver, ponder, new TranspositionTable(DEFAULT_TABLE_BYTES));
+    }
+
+    private ConnectFourRunner(ConnectFour game, Duration timeBudget, OpeningBook book, ConnectFourSolver solver,
+                              boolean ponder, TranspositionTable table) {
+        super(game, table);
         this.game = game;
+        this.timeBudget = timeBudget;
+        this.book = book;
+        this.solver = solver;
+        // pondering shares the table, so even unfinished answers speed up the real search
+        this.ponderer = ponder && solver == null
+                ? new Ponderer<>(game, table, DEPTH_LIMIT, () -> new KillerHistoryOrdering(game.moveIdCount()))
+                : null;
+        setMoveOrdering(new KillerHistoryOrdering(game.moveIdCount()));
     }
 
     public void play(){
@@ -25,11 +76,41 @@ public class ConnectFourRunner extends MinimaxPrune<Square> {
             game.printBoard();
             System.out.println();
             if(turn == Mark.X){
-                game.execute(getUserMove(), true);
+                if (ponderer != null) ponderer.start(true);
+                lastUserMove = getUserMove();
+                if (ponderer != null) ponderer.stop();
+                game.execute(lastUserMove, true);
                 turn = Mark.O;
             }else {
                 System.out.println("AI's turn:");
-                game.execute(minimaxSearch(DEPTH_LIMIT), false);
+                Square move = bookMove();
+                if (move == null && solver != null) {
+                    move = solverMove();
+                }
+                if (move == null && monteCarlo != null) {
+                    move = timeBudget == null ? monteCarlo.monteCarloSearch(MCTS_PLAYOUTS)
+                            : monteCarlo.monteCarloSearch(timeBudget);
+                    if (move != null) {
+                        System.out.printf("Played %d random games (%.0f/s), win rate %.2f%n", monteCarlo.getPlayouts(),
+                                monteCarlo.getPlayoutsPerSecond(), monteCarlo.getWinRate(move));
+                    }
+                }
+                if (move == null) {
+                    move = ponderedMove();
+                }
+                if (move == null && intSearch != null) {
+                    move = timeBudget == null ? intSearch.minimaxSearch(DEPTH_LIMIT) : intSearch.minimaxSearch(timeBudget);
+                }
+                if (move == null) {
+                    move = timeBudget == null ? minimaxSearch(DEPTH_LIMIT) : minimaxSearch(timeBudget);
+                    if (SearchStats.ENABLED) {
+                        System.out.println("Searched " + getSearchStats());
+                    }
+                    if (cache != null) {
+                        cache.flush();
+                    }
+                }
+                game.execute(move, false);
                 turn = Mark.X;
             }
         }
@@ -37,14 +118,81 @@ public class ConnectFourRunner extends MinimaxPrune<Square> {
         announceWinner(game.utility());
     }
 
+    /**
+     * @return the opening book move for the current position, or null if it is not in the book
+     */
+    private Square bookMove(){
+        if (book == null) return null;
+        OpeningBook.Entry entry = book.probe(game);
+        if (entry == null) return null;
+        System.out.println("Book move (score " + entry.score() + ")");
+        return game.toSquare(entry.column());
+    }
+
+    /**
+     * Keeps the results of the AI's searches in a file, for this run and the next ones.
+     */
+    public void setCache(PersistentTable cache){
+        this.cache = cache;
+        setPersistentTable(cache);
+    }
+
+    /**
+     * Makes the AI play by Monte Carlo tree search, searching the game of
+     * this runner, after the book and the solver; the caller closes it.
+     */
+    public void setMonteCarlo(MonteCarloTreeSearch<Square> monteCarlo){
+        this.monteCarlo = monteCarlo;
+    }
+
+    /**
+     * Makes the AI's minimax searches run on IntMinimaxPrune, which searches
+     * the encoded moves of the game and allocates nothing per position. It
+     * has its own table, and takes neither the driver nor the cache.
+     */
+    public void useIntSearch(){
+        IntMinimaxPrune search = new IntMinimaxPrune(game);
+        search.setMoveOrdering(new KillerHistoryOrdering(game.moveIdCount()));
+        this.intSearch = new IntMoveSearch<>(search, game::toSquare);
+    }
+
+    /**
+     * @return the answer pondered to the human's last move, or null if it was
+     *         not finished, or if the AI searches on a time budget
+     */
+    private Square ponderedMove(){
+        if (ponderer == null || timeBudget != null || lastUserMove == null) return null;
+        Square move = ponderer.reply(lastUserMove);
+        if (move != null) {
+            System.out.println("Pondered move (searched " + ponderer.replyDepth(lastUserMove) + " plies)");
+        }
+        return move;
+    }
+
+    /**
+     * @return the move chosen by the perfect-play solver, with O to move
+     */
+    private Square solverMove(){
+        ConnectFourSolver.Solution solution = solver.solve(game, false);
+        int score = solution.score();
+        if (score > 0) {
+            System.out.println("Solved: O wins with its stone number " + (22 - score));
+        } else if (score < 0) {
+            System.out.println("Solved: X can win with its stone number " + (22 + score));
+        } else {
+            System.out.println("Solved: draw with perfect play");
+        }
+        return game.toSquare(solution.column());
+    }
+
     private Square getUserMove(){
         Scanner scanner = new Scanner(System.in);
         while(true){
-            System.out.printf("Your turn: enter a column (0-%d): ", COLUMNS - 1);
+            System.out.printf("Your turn: enter a column (0-%d): ", game.getColumns() - 1);
             if(scanner.hasNextInt()){
                 int column = scanner.nextInt();
-                if(column >= 0 && column < COLUMNS){
-                    for(int row = ROWS - 1; row >= 0; row--){
+                if(column >= 0 && column < game.getColumns()){
+                    for(int row = game.getRows() - 1; row >= 0; row--){
                         Square square = new Square(row, column);
                         if(!game.markedSquare(square)){
                             return square;
@@ -72,8 +220,99 @@ public class ConnectFourRunner extends MinimaxPrune<Square> {
         }
     }
 
-    public static void main(String[] args) {
-        ConnectFourRunner runner = new ConnectFourRunner(new ConnectFour());
-        runner.play();
+    /**
+     * Usage: ConnectFourRunner [milliseconds per AI move] [--book=file] [--solve] [--ponder] [--cache=file]
+     *                          [--driver=full|aspiration|mtdf] [--rows=n] [--columns=n] [--connect=n]
+     *                          [--mcts=threads] [--int]
+     * Without a time the AI searches to a fixed depth. With a book (see
+     * OpeningBookGenerator) the AI plays the book move whenever there is one.
+     * With --solve the AI plays perfectly (see ConnectFourSolver); the first
+     * moves can then take a long time unless a book covers them.
+     * With --ponder the AI searches its answers while the human thinks (see
+     * Ponderer), and answers at once when it already has one.
+     * With --cache the AI keeps its search results in a file (see
+     * PersistentTable), created if needed, and starts from them next time.
+     * With --driver the AI searches the root with aspiration windows or
+     * MTD(f) instead of the full window (see MinimaxPrune.Driver).
+     * --rows, --columns and --connect change the board (6 rows, 7 columns
+     * and lines of 4 by default); the book and the solver need the default board.
+     * With --mcts the AI plays by Monte Carlo tree search on that many threads
+     * (see MonteCarloTreeSearch), for the given time or a fixed number of playouts.
+     * With --int the AI searches with IntMinimaxPrune, on encoded moves,
+     * instead of MinimaxPrune; it cannot be combined with --driver or --cache.
+     */
+    public static void main(String[] args) throws IOException {
+        Duration timeBudget = null;
+        OpeningBook book = null;
+        ConnectFourSolver solver = null;
+        boolean ponder = false;
+        PersistentTable cache = null;
+        Driver driver = Driver.FULL_WINDOW;
+        int rows = ConnectFour.DEFAULT_ROWS;
+        int columns = ConnectFour.DEFAULT_COLUMNS;
+        int connect = ConnectFour.DEFAULT_WIN_LENGTH;
+        String cacheFile = null;
+        int monteCarloThreads = 0;
+        boolean intSearch = false;
+        for (String arg : args) {
+            if (arg.startsWith("--cache=")) {
+                cacheFile = arg.substring("--cache=".length());
+            } else if (arg.startsWith("--rows=")) {
+                rows = Integer.parseInt(arg.substring("--rows=".length()));
+            } else if (arg.startsWith("--columns=")) {
+                columns = Integer.parseInt(arg.substring("--columns=".length()));
+            } else if (arg.startsWith("--connect=")) {
+                connect = Integer.parseInt(arg.substring("--connect=".length()));
+            } else if (arg.startsWith("--mcts=")) {
+                monteCarloThreads = Integer.parseInt(arg.substring("--mcts=".length()));
+            } else if (arg.startsWith("--driver=")) {
+                driver = Driver.parse(arg.substring("--driver=".length()));
+            } else if (arg.equals("--int")) {
+                intSearch = true;
+            } else if (arg.equals("--ponder")) {
+                ponder = true;
+            } else if (arg.equals("--solve")) {
+                solver = new ConnectFourSolver();
+            } else if (arg.startsWith("--book=")) {
+                book = OpeningBook.open(Path.of(arg.substring("--book=".length())));
+            } else {
+                timeBudget = Duration.ofMillis(Long.parseLong(arg));
+            }
+        }
+        ConnectFour game = new ConnectFour(rows, columns, connect);
+        if ((book != null || solver != null) && !game.isStandardSize()) {
+            throw new IllegalArgumentException("The book and the solver need the standard "
+                    + ConnectFour.DEFAULT_ROWS + "x" + ConnectFour.DEFAULT_COLUMNS + " board");
+        }
+        if (intSearch && (cacheFile != null || driver != Driver.FULL_WINDOW)) {
+            throw new IllegalArgumentException("--int takes neither --driver nor --cache");
+        }
+        if (cacheFile != null) {
+            // results of other board sizes must not be mixed in
+            String tag = game.isStandardSize() ? "connectfour" : "connectfour-" + rows + "x" + columns + "-" + connect;
+            cache = PersistentTable.open(Path.of(cacheFile), CACHE_BYTES, tag);
+        }
+        ConnectFourRunner runner = new ConnectFourRunner(game, timeBudget, book, solver, ponder);
+        runner.setDriver(driver);
+        if (intSearch) {
+            runner.useIntSearch();
+        }
+        if (cache != null) {
+            PersistentTable table = cache;
+            runner.setCache(table);
+            // keep what was searched even if the game is interrupted
+            Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+                try {
+                    table.close();
+                } catch (IOException e) {
+                    System.err.println("Could not save the search cache: " + e.getMessage());
+                }
+            }));
+        }
+        try (MonteCarloTreeSearch<Square> monteCarlo = monteCarloThreads > 0
+                ? new MonteCarloTreeSearch<>(game, ConnectFour.WIN_SCORE, monteCarloThreads) : null) {
+            runner.setMonteCarlo(monteCarlo);
+            runner.play();
+        }
     }
 }
@@ -0,0 +1,349 @@
+package solutions;
+
+import core_algorithms.TranspositionTable;
+import problems.ConnectFour;
+
+/**
+ * Solves 6x7 Connect Four positions exactly: instead of the heuristic value
+ * of a depth-limited search, finds the game-theoretic score of a position
+ * with perfect play from both sides.
+ *
+ * Scores are from the point of view of the player to move:
+ * - 0 is a draw
+ * - a positive score is a win, and the faster the better: the player wins
+ *   with its (22 - score)-th stone
+ * - a negative score is a loss: the opponent wins with its (22 + score)-th stone
+ *
+ * The solver works on its own two-bitboard position (the stones of the
+ * player to move and the occupied cells), in the same layout as ConnectFour,
+ * so that winning cells of a whole board are found with a few shifts.
+ * On top of negamax with alpha-beta pruning it uses:
+ * - a null-window search: solve narrows the score interval with searches
+ *   whose window is a single score, which prune much more than a full window
+ * - score bounds: the number of empty cells bounds the best reachable score
+ * - pruning of losing moves: moves that let the opponent win immediately,
+ *   or that fail to block an immediate threat, are never searched
+ * - threat-aware move ordering: moves creating the most winning cells come
+ *   first, then center columns
+ * - a transposition table of score bounds, kept between calls since the
+ *   bounds of a position never change
+ */
+public class ConnectFourSolver {
+    // Default memory budget of the transposition table: 64 MB
+    public static final long DEFAULT_TABLE_BYTES = 64L << 20;
+    private static final int WIDTH = 7;
+    private static final int HEIGHT = 6;
+    private static final int CELLS = WIDTH * HEIGHT;
+    // Bits per column, including the empty bit on top
+    private static final int COLUMN_BITS = HEIGHT + 1;
+    private static final int[] COLUMN_ORDER = {3, 2, 4, 1, 5, 0, 6};
+    // One bit at the bottom of every column
+    private static final long BOTTOM_MASK = buildBottomMask();
+    // Every playable cell
+    private static final long BOARD_MASK = BOTTOM_MASK * ((1L << HEIGHT) - 1);
+    // Bijective mixing of the position key, so that the table spreads positions evenly
+    private static final long KEY_MIX = 0x9E3779B97F4A7C15L;
+
+    /**
+     * The result of solve.
+     *
+     * @param score  the exact score, for the player to move
+     * @param column a column that achieves that score
+     */
+    public record Solution(int score, int column) {}
+
+    private final TranspositionTable table;
+    // Stones of the player to move, and occupied cells
+    private long current;
+    private long mask;
+    private int moves;
+    private long nodeCount;
+    // Candidate moves and their ordering scores, per number of stones on the board
+    private final long[][] moveBuffers = new long[CELLS + 1][WIDTH];
+    private final int[][] scoreBuffers = new int[CELLS + 1][WIDTH];
+
+    public ConnectFourSolver() {
+        this(DEFAULT_TABLE_BYTES);
+    }
+
+    /**
+     * @param tableBytes memory budget of the transposition table in bytes
+     */
+    public ConnectFourSolver(long tableBytes) {
+        this.table = new TranspositionTable(tableBytes);
+    }
+
+    /**
+     * Solves a position and finds a move achieving its score.
+     *
+     * @param game  the position, on the standard board, which must not be over
+     * @param isMax true if X (MAX) is to move, false if O (MIN) is
+     * @return the exact score for the player to move and a best column
+     */
+    public Solution solve(ConnectFour game, boolean isMax) {
+        if (!game.isStandardSize()) {
+            throw new IllegalArgumentException("The solver only plays on the " + HEIGHT + "x" + WIDTH + " board");
+        }
+        if (game.isTerminal()) {
+            throw new IllegalStateException("The game is already over");
+        }
+        load(game.positionKey(), isMax);
+        nodeCount = 0;
+
+        long possible = possible();
+        long winning = winningPosition(current, mask) & possible;
+        if (winning != 0) {
+            return new Solution((CELLS + 1 - moves) / 2, columnOf(winning));
+        }
+
+        int score = solveScore();
+        return new Solution(score, bestColumn(score));
+    }
+
+    /**
+     * @return the number of positions searched by the last call to solve
+     */
+    public long getNodeCount() {
+        return nodeCount;
+    }
+
+    /**
+     * Finds the exact score of the loaded position, which cannot be won
+     * immediately, by narrowing [min, max] with null-window searches.
+     */
+    private int solveScore() {
+        int min = -(CELLS - moves) / 2;
+        int max = (CELLS + 1 - moves) / 2;
+        while (min < max) {
+            int middle = min + (max - min) / 2;
+            // probe closer to 0 first: most positions are decided by small margins
+            if (middle <= 0 && min / 2 < middle) middle = min / 2;
+            else if (middle >= 0 && max / 2 > middle) middle = max / 2;
+            int result = negamax(middle, middle + 1);
+            if (result <= middle) max = result;
+            else min = result;
+        }
+        return min;
+    }
+
+    /**
+     * Finds a column whose score is the given score of the loaded position.
+     */
+    private int bestColumn(int score) {
+        long candidates = nonLosingMoves();
+        if (candidates == 0) {
+            // every move loses as fast as possible: any one will do
+            return columnOf(possible());
+        }
+        for (int col : COLUMN_ORDER) {
+            long move = candidates & columnMask(col);
+            if (move == 0) continue;
+            long savedCurrent = current;
+            long savedMask = mask;
+            play(move);
+            // the opponent's score after the move is at most -score exactly when the move achieves score
+            int result = negamax(-score, -score + 1);
+            current = savedCurrent;
+            mask = savedMask;
+            moves--;
+            if (result <= -score) {
+                return col;
+            }
+        }
+        throw new IllegalStateException("No move achieves score " + score);
+    }
+
+    /**
+     * Negamax with alpha-beta pruning, fail-soft.
+     * The loaded position must not be won immediately by the player to move.
+     *
+     * @return the exact score if it lies in (alpha, beta); otherwise a bound
+     *         on the same side of the window as the score
+     */
+    private int negamax(int alpha, int beta) {
+        nodeCount++;
+        long next = nonLosingMoves();
+        if (next == 0) {
+            // every move lets the opponent win next turn
+            return -(CELLS - moves) / 2;
+        }
+        if (moves >= CELLS - 2) {
+            // the last two stones cannot make a line any more
+            return 0;
+        }
+
+        // the opponent cannot win next turn, and the player can win at the earliest with its move after next
+        int min = -(CELLS - 2 - moves) / 2;
+        int max = (CELLS - 1 - moves) / 2;
+        long key = (current + mask) * KEY_MIX;
+        long entry = table.probe(key);
+        int tableMove = -1;
+        if (entry != TranspositionTable.MISS) {
+            int bound = TranspositionTable.bound(entry);
+            int stored = TranspositionTable.score(entry);
+            if (bound == TranspositionTable.UPPER_BOUND) max = Math.min(max, stored);
+            else min = Math.max(min, stored);
+            tableMove = TranspositionTable.move(entry);
+        }
+        if (alpha < min) {
+            alpha = min;
+            if (alpha >= beta) return alpha;
+        }
+        if (beta > max) {
+            beta = max;
+            if (alpha >= beta) return beta;
+        }
+
+        long[] moveList = moveBuffers[moves];
+        int count = orderMoves(next, tableMove, moveList, scoreBuffers[moves]);
+        int depth = CELLS - moves;
+        for (int i = 0; i < count; i++) {
+            long move = moveList[i];
+            long savedCurrent = current;
+            long savedMask = mask;
+            play(move);
+            int score = -negamax(-beta, -alpha);
+            current = savedCurrent;
+            mask = savedMask;
+            moves--;
+
+            if (score >= beta) {
+                table.store(key, depth, TranspositionTable.LOWER_BOUND, score, columnOf(move));
+                return score;
+            }
+            if (score > alpha) alpha = score;
+        }
+        table.store(key, depth, TranspositionTable.UPPER_BOUND, alpha, -1);
+        return alpha;
+    }
+
+    /**
+     * Sorts the candidate moves: the table move first, then by decreasing
+     * number of winning cells the move creates, ties going to center columns.
+     *
+     * @return the number of moves written to moveList
+     */
+    private int orderMoves(long candidates, int tableMove, long[] moveList, int[] scores) {
+        int count = 0;
+        for (int col : COLUMN_ORDER) {
+            long move = candidates & columnMask(col);
+            if (move == 0) continue;
+            int score = col == tableMove ? Integer.MAX_VALUE
+                    : Long.bitCount(winningPosition(current | move, mask));
+            int j = count++;
+            while (j > 0 && scores[j - 1] < score) {
+                moveList[j] = moveList[j - 1];
+                scores[j] = scores[j - 1];
+                j--;
+            }
+            moveList[j] = move;
+            scores[j] = score;
+        }
+        return count;
+    }
+
+    /**
+     * Sets up the solver position from ConnectFour#positionKey.
+     */
+    private void load(long positionKey, boolean xToMove) {
+        long occupied = 0;
+        long xStones = 0;
+        long columnMask = (1L << COLUMN_BITS) - 1;
+        for (int col = 0; col < WIDTH; col++) {
+            int shift = col * COLUMN_BITS;
+            long column = (positionKey >>> shift) & columnMask;
+            // a column of height h holds (2^h - 1) + its X stones, with X stones < 2^h
+            int height = 63 - Long.numberOfLeadingZeros(column + 1);
+            long filled = (1L << height) - 1;
+            occupied |= filled << shift;
+            xStones |= (column - filled) << shift;
+        }
+        mask = occupied;
+        current = xToMove ? xStones : occupied ^ xStones;
+        moves = Long.bitCount(occupied);
+    }
+
+    /**
+     * Plays a move (a single bit, the cell filled) for the player to move;
+     * afterwards current holds the other player's stones.
+     */
+    private void play(long move) {
+        current ^= mask;
+        mask |= move;
+        moves++;
+    }
+
+    /**
+     * @return the lowest empty cell of every column that is not full
+     */
+    private long possible() {
+        return (mask + BOTTOM_MASK) & BOARD_MASK;
+    }
+
+    /**
+     * @return the playable cells that neither let the opponent win on top of
+     *         them nor leave one of its immediate wins open; 0 if every move loses
+     */
+    private long nonLosingMoves() {
+        long possible = possible();
+        long opponentWins = winningPosition(current ^ mask, mask);
+        long forced = possible & opponentWins;
+        if (forced != 0) {
+            if ((forced & (forced - 1)) != 0) {
+                return 0; // two threats cannot both be blocked
+            }
+            possible = forced;
+        }
+        return possible & ~(opponentWins >>> 1);
+    }
+
+    /**
+     * Finds the empty cells that would complete a line of four for the given stones.
+     *
+     * @param position the stones of one player
+     * @param mask     the occupied cells
+     * @return the winning cells, whether or not they are playable now
+     */
+    private static long winningPosition(long position, long mask) {
+        // vertical: three stones right below
+        long result = (position << 1) & (position << 2) & (position << 3);
+        result |= lineEnds(position, COLUMN_BITS); // horizontal
+        result |= lineEnds(position, HEIGHT);      // diagonal going down to the right
+        result |= lineEnds(position, HEIGHT + 2);  // diagonal going up to the right
+        return result & (BOARD_MASK ^ mask);
+    }
+
+    /**
+     * Finds the cells completing four in a row along one direction, given
+     * by the bit distance between neighbouring cells: three stones on one
+     * side, or two on one side and one on the other.
+     */
+    private static long lineEnds(long position, int step) {
+        long pair = (position << step) & (position << 2 * step);
+        long result = pair & (position << 3 * step);
+        result |= pair & (position >>> step);
+        pair = (position >>> step) & (position >>> 2 * step);
+        result |= pair & (position << step);
+        result |= pair & (position >>> 3 * step);
+        return result;
+    }
+
+    private static long columnMask(int col) {
+        return ((1L << HEIGHT) - 1) << (col * COLUMN_BITS);
+    }
+
+    /**
+     * @return the column of the lowest set bit
+     */
+    private static int columnOf(long cells) {
+        return Long.numberOfTrailingZeros(cells) / COLUMN_BITS;
+    }
+
+    private static long buildBottomMask() {
+        long bottom = 0;
+        for (int col = 0; col < WIDTH; col++) {
+            bottom |= 1L << (col * COLUMN_BITS);
+        }
+        return bottom;
+    }
+}
@@ -0,0 +1,449 @@
+package solutions;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import core_algorithms.MinimaxPrune;
+import core_algorithms.TranspositionTable;
+import problems.ConnectFour;
+import problems.HashedGame;
+import problems.IntMoveGame;
+import problems.Square;
+import problems.TicTacToe;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.IntFunction;
+import java.util.function.Supplier;
+
+/**
+ * An HTTP server hosting many concurrent Connect Four and Tic Tac Toe games.
+ *
+ * Every request runs on its own virtual thread, so thousands of sessions
+ * can wait on their clients at no cost. Searches, which are CPU-bound, run
+ * on a fixed pool of platform search threads while the virtual thread of the
+ * request waits for the result: AI moves are served first come, first served,
+ * and never use more than that many cores. By default the pool leaves one
+ * core to the request threads. The searches of all games of one kind and
+ * size share a transposition table.
+ *
+ * Endpoints (responses are JSON describing the game):
+ * - POST   /games?type=connectfour|tictactoe[&size=n][&depth=plies]  new game
+ * - GET    /games/{id}                                                game state
+ * - POST   /games/{id}/move?move=m   plays m for the player to move
+ * - POST   /games/{id}/ai            lets the AI play for the player to move
+ * - DELETE /games/{id}               ends the session
+ *
+ * Moves are encoded as in IntMoveGame: the column in Connect Four,
+ * row * size + column in Tic Tac Toe. X moves first; the client decides
+ * which side the AI plays by when it asks for AI moves.
+ *
+ * A session that receives no request for the idle timeout (30 minutes by
+ * default) is ended as if deleted, so clients that disappear do not keep
+ * their games in memory.
+ *
+ * Usage: GameServer [--port=n] [--search-threads=n] [--idle-minutes=n]
+ */
+public class GameServer {
+
+    private static final int CONNECT_FOUR_DEPTH = 8;
+    private static final int TIC_TAC_TOE_DEPTH = 9;
+    private static final int MAX_DEPTH = 12;
+    private static final long TABLE_BYTES = 64L << 20;
+    private static final Duration DEFAULT_IDLE_TIMEOUT = Duration.ofMinutes(30);
+
+    /**
+     * One game and its search. All access goes through the lock.
+     */
+    private static final class Session {
+        final long id;
+        final String type;
+        final HashedGame<Square> game;
+        final IntMoveGame moves;
+        final IntFunction<Square> toSquare;
+        final MinimaxPrune<Square> search;
+        final int depth;
+        final int rows;
+        final int columns;
+        final int winValue;
+        // Marks as printed, row by row
+        final char[] cells;
+        final ReentrantLock lock = new ReentrantLock();
+        boolean xToMove = true;
+        int lastMove = -1;
+        // System.nanoTime() of the last request to this session
+        volatile long lastAccess = System.nanoTime();
+
+        <G extends HashedGame<Square> & IntMoveGame> Session(long id, String type, G game, IntFunction<Square> toSquare,
+                TranspositionTable table, int depth, int rows, int columns, int winValue) {
+            this.id = id;
+            this.type = type;
+            this.game = game;
+            this.moves = game;
+            this.toSquare = toSquare;
+            this.search = new MinimaxPrune<>(game, table);
+            this.depth = depth;
+            this.rows = rows;
+            this.columns = columns;
+            this.winValue = winValue;
+            this.cells = new char[rows * columns];
+            Arrays.fill(cells, '.');
+        }
+
+        boolean isLegal(int move) {
+            int[] legal = new int[moves.moveIdCount()];
+            int count = moves.generateMoves(legal);
+            for (int i = 0; i < count; i++) {
+                if (legal[i] == move) return true;
+            }
+            return false;
+        }
+
+        void play(Square square) {
+            game.execute(square, xToMove);
+            cells[square.row() * columns + square.column()] = xToMove ? 'X' : 'O';
+            lastMove = square.row() * columns + square.column();
+            xToMove = !xToMove;
+        }
+
+        String status() {
+            if (!game.isTerminal()) return "playing";
+            int utility = game.utility();
+            if (utility >= winValue) return "X wins";
+            if (utility <= -winValue) return "O wins";
+            return "draw";
+        }
+
+        String toJson(String extra) {
+            StringBuilder json = new StringBuilder();
+            json.append("{\"id\": ").append(id)
+                    .append(", \"type\": \"").append(type).append('"')
+                    .append(", \"status\": \"").append(status()).append('"')
+                    .append(", \"toMove\": \"").append(xToMove ? 'X' : 'O').append('"')
+                    .append(", \"lastMove\": ").append(lastMove < 0 ? -1 : moveCode(lastMove))
+                    .append(", \"board\": [");
+            for (int row = 0; row < rows; row++) {
+                json.append(row == 0 ? "\"" : ", \"").append(cells, row * columns, columns).append('"');
+            }
+            json.append("], \"moves\": [");
+            if (!game.isTerminal()) {
+                int[] legal = new int[moves.moveIdCount()];
+                int count = moves.generateMoves(legal);
+                for (int i = 0; i < count; i++) {
+                    json.append(i == 0 ? "" : ", ").append(legal[i]);
+                }
+            }
+            json.append(']').append(extra).append('}');
+            return json.toString();
+        }
+
+        /**
+         * Converts a cell index to the move code of the game.
+         */
+        private int moveCode(int cell) {
+            return type.equals("connectfour") ? cell % columns : cell;
+        }
+    }
+
+    private final Map<Long, Session> sessions = new ConcurrentHashMap<>();
+    private final AtomicLong nextId = new AtomicLong(1);
+    // Shared by all the searches of one game configuration (see table)
+    private final Map<String, TranspositionTable> tables = new ConcurrentHashMap<>();
+    // Runs the searches; its queue serves AI moves in order
+    private final ExecutorService searchPool;
+    // Ends the sessions idle for longer than idleTimeout
+    private final ScheduledExecutorService sweeper;
+    private final Duration idleTimeout;
+    private final HttpServer server;
+
+    public GameServer(int port, int searchThreads) throws IOException {
+        this(port, searchThreads, DEFAULT_IDLE_TIMEOUT);
+    }
+
+    /**
+     * @param idleTimeout how long a session may go without requests before it is ended
+     */
+    public GameServer(int port, int searchThreads, Duration idleTimeout) throws IOException {
+        if (searchThreads < 1) throw new IllegalArgumentException("searchThreads must be at least 1");
+        if (idleTimeout.isNegative() || idleTimeout.isZero()) {
+            throw new IllegalArgumentException("idleTimeout must be positive");
+        }
+        this.searchPool = Executors.newFixedThreadPool(searchThreads,
+                Thread.ofPlatform().daemon().name("search-", 0).factory());
+        this.idleTimeout = idleTimeout;
+        this.sweeper = Executors.newSingleThreadScheduledExecutor(
+                Thread.ofPlatform().daemon().name("session-sweeper").factory());
+        // sweep a few times per timeout, so sessions live at most a little longer than it
+        long period = Math.max(1, idleTimeout.toMillis() / 4);
+        sweeper.scheduleAtFixedRate(this::endIdleSessions, period, period, TimeUnit.MILLISECONDS);
+        this.server = HttpServer.create(new InetSocketAddress(port), 1024);
+        server.setExecutor(Executors.newVirtualThreadPerTaskExecutor());
+        server.createContext("/games", this::handle);
+    }
+
+    public void start() {
+        server.start();
+    }
+
+    public void stop() {
+        server.stop(0);
+        searchPool.shutdown();
+        sweeper.shutdown();
+    }
+
+    /**
+     * @return the number of live sessions
+     */
+    public int getSessionCount() {
+        return sessions.size();
+    }
+
+    private void endIdleSessions() {
+        long now = System.nanoTime();
+        sessions.values().removeIf(session -> now - session.lastAccess > idleTimeout.toNanos());
+    }
+
+    /**
+     * @return the port the server listens on
+     */
+    public int getPort() {
+        return server.getAddress().getPort();
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        try (exchange) {
+            String[] path = exchange.getRequestURI().getPath().split("/");
+            Map<String, String> query = parseQuery(exchange.getRequestURI().getRawQuery());
+            String method = exchange.getRequestMethod();
+            try {
+                // the context matches any path starting with /games, e.g. /gamesfoo
+                if (path.length < 2 || !path[1].equals("games")) {
+                    respond(exchange, 404, error("unknown endpoint"));
+                    return;
+                }
+                if (path.length == 2 && method.equals("POST")) {
+                    respond(exchange, 201, newGame(query).toJson(""));
+                    return;
+                }
+                if (path.length < 3) {
+                    respond(exchange, 404, error("unknown endpoint"));
+                    return;
+                }
+                Session session = sessions.get(Long.parseLong(path[2]));
+                if (session == null) {
+                    respond(exchange, 404, error("unknown game " + path[2]));
+                    return;
+                }
+                session.lastAccess = System.nanoTime();
+                String action = path.length > 3 ? path[3] : "";
+                switch (method + " " + action) {
+                    case "GET " -> respond(exchange, 200, withLock(session, () -> session.toJson("")));
+                    case "DELETE " -> {
+                        sessions.remove(session.id);
+                        respond(exchange, 204, null);
+                    }
+                    case "POST move" -> move(exchange, session, Integer.parseInt(required(query, "move")));
+                    case "POST ai" -> aiMove(exchange, session);
+                    default -> respond(exchange, 404, error("unknown endpoint"));
+                }
+            } catch (IllegalArgumentException e) {
+                respond(exchange, 400, error(e.getMessage()));
+            }
+        }
+    }
+
+    private Session newGame(Map<String, String> query) {
+        String type = query.getOrDefault("type", "connectfour");
+        long id = nextId.getAndIncrement();
+        Session session;
+        switch (type) {
+            case "connectfour" -> {
+                ConnectFour game = new ConnectFour();
+                int depth = depth(query, CONNECT_FOUR_DEPTH);
+                session = new Session(id, type, game, game::toSquare, table(type), depth,
+                        game.getRows(), game.getColumns(), ConnectFour.WIN_SCORE);
+            }
+            case "tictactoe" -> {
+                int size = Integer.parseInt(query.getOrDefault("size", "3"));
+                if (size < 3 || size > 8) throw new IllegalArgumentException("size must be between 3 and 8");
+                TicTacToe game = new TicTacToe(size);
+                int depth = depth(query, TIC_TAC_TOE_DEPTH);
+                session = new Session(id, type, game, game::toSquare, table(type + size), depth, size, size, 1);
+            }
+            default -> throw new IllegalArgumentException("unknown game type " + type);
+        }
+        sessions.put(id, session);
+        return session;
+    }
+
+    /**
+     * @param configuration the game and its size: move ids and symmetries differ from one size
+     *                      to another, so each size needs its own table
+     * @return the table shared by the games of that configuration
+     */
+    private TranspositionTable table(String configuration) {
+        return tables.computeIfAbsent(configuration, c -> new TranspositionTable(TABLE_BYTES));
+    }
+
+    private void move(HttpExchange exchange, Session session, int move) throws IOException {
+        session.lock.lock();
+        try {
+            if (session.game.isTerminal()) {
+                respond(exchange, 409, error("game over"));
+            } else if (!session.isLegal(move)) {
+                respond(exchange, 400, error("illegal move " + move));
+            } else {
+                session.play(session.toSquare.apply(move));
+                respond(exchange, 200, session.toJson(""));
+            }
+        } finally {
+            session.lock.unlock();
+        }
+    }
+
+    private void aiMove(HttpExchange exchange, Session session) throws IOException {
+        session.lock.lock();
+        try {
+            if (session.game.isTerminal()) {
+                respond(exchange, 409, error("game over"));
+                return;
+            }
+            long start = System.nanoTime();
+            Square square;
+            try {
+                square = awaitSearch(searchPool.submit(
+                        () -> session.search.minimaxSearch(session.depth, session.xToMove)));
+            } catch (ExecutionException e) {
+                respond(exchange, 500, error("search failed: " + e.getCause()));
+                return;
+            }
+            long micros = (System.nanoTime() - start) / 1000;
+            int score = session.search.getLastResult().score();
+            session.play(square);
+            respond(exchange, 200, session.toJson(", \"score\": " + score + ", \"micros\": " + micros));
+        } finally {
+            session.lock.unlock();
+        }
+    }
+
+    /**
+     * Waits for a search to finish, even if interrupted: the search uses the
+     * session, so it must not outlive the lock held by the caller.
+     */
+    private static Square awaitSearch(Future<Square> search) throws ExecutionException {
+        boolean interrupted = false;
+        try {
+            while (true) {
+                try {
+                    return search.get();
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                }
+            }
+        } finally {
+            if (interrupted) Thread.currentThread().interrupt();
+        }
+    }
+
+    private static String withLock(Session session, Supplier<String> action) {
+        session.lock.lock();
+        try {
+            return action.get();
+        } finally {
+            session.lock.unlock();
+        }
+    }
+
+    private static int depth(Map<String, String> query, int defaultDepth) {
+        int depth = Integer.parseInt(query.getOrDefault("depth", String.valueOf(defaultDepth)));
+        if (depth < 1 || depth > MAX_DEPTH) {
+            throw new IllegalArgumentException("depth must be between 1 and " + MAX_DEPTH);
+        }
+        return depth;
+    }
+
+    private static String required(Map<String, String> query, String name) {
+        String value = query.get(name);
+        if (value == null) throw new IllegalArgumentException("missing parameter " + name);
+        return value;
+    }
+
+    private static Map<String, String> parseQuery(String query) {
+        Map<String, String> parameters = new HashMap<>();
+        if (query == null) return parameters;
+        for (String pair : query.split("&")) {
+            int equals = pair.indexOf('=');
+            if (equals > 0) parameters.put(pair.substring(0, equals), pair.substring(equals + 1));
+        }
+        return parameters;
+    }
+
+    private static String error(String message) {
+        return "{\"error\": " + jsonString(message) + "}";
+    }
+
+    /**
+     * Quotes a string for JSON, escaping quotes, backslashes and control characters.
+     */
+    private static String jsonString(String value) {
+        StringBuilder json = new StringBuilder(value.length() + 2).append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '"' -> json.append("\\\"");
+                case '\\' -> json.append("\\\\");
+                case '\n' -> json.append("\\n");
+                case '\r' -> json.append("\\r");
+                case '\t' -> json.append("\\t");
+                default -> {
+                    if (c < 0x20) json.append(String.format("\\u%04x", (int) c));
+                    else json.append(c);
+                }
+            }
+        }
+        return json.append('"').toString();
+    }
+
+    private static void respond(HttpExchange exchange, int status, String body) throws IOException {
+        if (body == null) {
+            exchange.sendResponseHeaders(status, -1);
+            return;
+        }
+        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "application/json");
+        exchange.sendResponseHeaders(status, bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+
+    public static void main(String[] args) throws IOException {
+        int port = 8080;
+        int searchThreads = Math.max(1, Runtime.getRuntime().availableProcessors() - 1);
+        Duration idleTimeout = DEFAULT_IDLE_TIMEOUT;
+        for (String arg : args) {
+            String value = arg.substring(arg.indexOf('=') + 1);
+            if (arg.startsWith("--port=")) port = Integer.parseInt(value);
+            else if (arg.startsWith("--search-threads=")) searchThreads = Integer.parseInt(value);
+            else if (arg.startsWith("--idle-minutes=")) idleTimeout = Duration.ofMinutes(Long.parseLong(value));
+            else throw new IllegalArgumentException("Unknown argument: " + arg);
+        }
+        GameServer server = new GameServer(port, searchThreads, idleTimeout);
+        server.start();
+        System.out.printf("Serving games on port %d with %d search threads%n", server.getPort(), searchThreads);
+    }
+}
@@ -0,0 +1,137 @@
+package solutions;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Load test for GameServer: a number of concurrent clients, each on its own
+ * virtual thread, play complete games against the AI (random moves for X,
+ * AI moves for O) until the requested number of games is played.
+ *
+ * Reports games per second and the 50th and 99th percentile latency of AI
+ * moves, measured by the client (queueing for a search slot included).
+ *
+ * Usage: GameServerLoadTest [--url=http://localhost:8080] [--type=connectfour|tictactoe]
+ *                           [--depth=plies] [--concurrency=clients] [--games=n]
+ */
+public class GameServerLoadTest {
+
+    private static final Pattern ID = Pattern.compile("\"id\": (\\d+)");
+    private static final Pattern STATUS = Pattern.compile("\"status\": \"([^\"]*)\"");
+    private static final Pattern MOVES = Pattern.compile("\"moves\": \\[([^]]*)]");
+
+    private final HttpClient client = HttpClient.newBuilder()
+            .executor(Executors.newVirtualThreadPerTaskExecutor())
+            .build();
+    private final String url;
+    private final String newGameQuery;
+
+    public GameServerLoadTest(String url, String type, int depth) {
+        this.url = url;
+        this.newGameQuery = "?type=" + type + (depth > 0 ? "&depth=" + depth : "");
+    }
+
+    /**
+     * Plays games until the shared counter reaches the total.
+     *
+     * @return the AI move latencies in nanoseconds
+     */
+    private List<Long> playGames(AtomicInteger remaining, long seed) throws IOException, InterruptedException {
+        Random random = new Random(seed);
+        List<Long> latencies = new ArrayList<>();
+        while (remaining.getAndDecrement() > 0) {
+            String state = post("/games" + newGameQuery);
+            String game = "/games/" + find(ID, state);
+            while (find(STATUS, state).equals("playing")) {
+                String[] moves = find(MOVES, state).split(", ");
+                state = post(game + "/move?move=" + moves[random.nextInt(moves.length)]);
+                if (!find(STATUS, state).equals("playing")) break;
+                long start = System.nanoTime();
+                state = post(game + "/ai");
+                latencies.add(System.nanoTime() - start);
+            }
+            client.send(HttpRequest.newBuilder(URI.create(url + game)).DELETE().build(),
+                    HttpResponse.BodyHandlers.discarding());
+        }
+        return latencies;
+    }
+
+    private String post(String path) throws IOException, InterruptedException {
+        HttpRequest request = HttpRequest.newBuilder(URI.create(url + path))
+                .POST(HttpRequest.BodyPublishers.noBody())
+                .build();
+        HttpResponse<String> response = client.send(request, HttpResponse.BodyHandlers.ofString());
+        if (response.statusCode() >= 300) {
+            throw new IOException(path + " returned " + response.statusCode() + ": " + response.body());
+        }
+        return response.body();
+    }
+
+    private static String find(Pattern pattern, String json) {
+        Matcher matcher = pattern.matcher(json);
+        if (!matcher.find()) throw new IllegalStateException("Unexpected response: " + json);
+        return matcher.group(1);
+    }
+
+    public static void main(String[] args) throws InterruptedException, ExecutionException {
+        String url = "http://localhost:8080";
+        String type = "connectfour";
+        int depth = 0;
+        int concurrency = 64;
+        int games = 1000;
+        for (String arg : args) {
+            String value = arg.substring(arg.indexOf('=') + 1);
+            if (arg.startsWith("--url=")) url = value;
+            else if (arg.startsWith("--type=")) type = value;
+            else if (arg.startsWith("--depth=")) depth = Integer.parseInt(value);
+            else if (arg.startsWith("--concurrency=")) concurrency = Integer.parseInt(value);
+            else if (arg.startsWith("--games=")) games = Integer.parseInt(value);
+            else throw new IllegalArgumentException("Unknown argument: " + arg);
+        }
+
+        GameServerLoadTest test = new GameServerLoadTest(url, type, depth);
+        AtomicInteger remaining = new AtomicInteger(games);
+        List<Future<List<Long>>> clients = new ArrayList<>();
+        long start = System.nanoTime();
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int i = 0; i < concurrency; i++) {
+                long seed = i;
+                clients.add(executor.submit(() -> test.playGames(remaining, seed)));
+            }
+        }
+        double seconds = (System.nanoTime() - start) / 1e9;
+
+        long[] latencies = new long[0];
+        for (Future<List<Long>> c : clients) {
+            List<Long> l = c.get();
+            int offset = latencies.length;
+            latencies = Arrays.copyOf(latencies, offset + l.size());
+            for (int i = 0; i < l.size(); i++) latencies[offset + i] = l.get(i);
+        }
+        Arrays.sort(latencies);
+        System.out.printf("%d games in %.1f s: %.1f games/s, %d AI moves%n",
+                games, seconds, games / seconds, latencies.length);
+        if (latencies.length > 0) {
+            System.out.printf("AI move latency: p50 %.2f ms, p99 %.2f ms%n",
+                    percentile(latencies, 0.50) / 1e6, percentile(latencies, 0.99) / 1e6);
+        }
+    }
+
+    private static long percentile(long[] sorted, double fraction) {
+        return sorted[Math.min(sorted.length - 1, (int) Math.ceil(fraction * sorted.length) - 1)];
+    }
+}
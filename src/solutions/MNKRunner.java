@@ -0,0 +1,115 @@
+package solutions;
+
+import core_algorithms.KillerHistoryOrdering;
+import core_algorithms.MinimaxPrune;
+import core_algorithms.SearchStats;
+import problems.MNKGame;
+import problems.Mark;
+import problems.Square;
+
+import java.time.Duration;
+import java.util.Scanner;
+
+/**
+ * A console-based runner for m,n,k-games (Gomoku by default).
+ *
+ * Assumptions:
+ * - The human player is 'X' (MAX player) and moves first
+ * - The AI is 'O' (MIN player)
+ */
+public class MNKRunner extends MinimaxPrune<Square> {
+
+    private Mark turn = Mark.X;
+    private final MNKGame game;
+    private final int DEPTH_LIMIT = 6;
+    // Time allowed per AI move; when null, the AI searches to DEPTH_LIMIT instead
+    private final Duration timeBudget;
+
+    public MNKRunner(MNKGame game, Duration timeBudget) {
+        super(game);
+        this.game = game;
+        this.timeBudget = timeBudget;
+        setMoveOrdering(new KillerHistoryOrdering(game.moveIdCount()));
+    }
+
+    public void play() {
+        while (!game.isTerminal()) {
+            game.printBoard();
+            System.out.println();
+            if (turn == Mark.X) {
+                game.execute(getUserMove(), true);
+                turn = Mark.O;
+            } else {
+                System.out.println("AI's turn:");
+                Square move = timeBudget == null ? minimaxSearch(DEPTH_LIMIT) : minimaxSearch(timeBudget);
+                if (SearchStats.ENABLED) {
+                    System.out.println("Searched " + getSearchStats());
+                }
+                System.out.println("AI plays " + move.row() + " " + move.column());
+                game.execute(move, false);
+                turn = Mark.X;
+            }
+        }
+        game.printBoard();
+        announceWinner(game.utility());
+    }
+
+    /**
+     * Prompts the human player for a row and a column until they name an empty square.
+     * Any empty square is allowed, not only the candidates the AI considers.
+     */
+    private Square getUserMove() {
+        Scanner scanner = new Scanner(System.in);
+        while (true) {
+            System.out.print("Your turn: enter row & column separated by space: ");
+            if (!scanner.hasNextInt()) {
+                scanner.next();
+                continue;
+            }
+            int row = scanner.nextInt();
+            if (!scanner.hasNextInt()) {
+                scanner.next();
+                continue;
+            }
+            int col = scanner.nextInt();
+            if (row >= 0 && row < game.getRows() && col >= 0 && col < game.getColumns()
+                    && !game.markedSquare(new Square(row, col))) {
+                return new Square(row, col);
+            }
+            System.out.println("Invalid position, please try again.");
+        }
+    }
+
+    private void announceWinner(int utility) {
+        if (utility == MNKGame.WIN_SCORE) {
+            System.out.println("\nPlayer (X) wins!");
+        } else if (utility == -MNKGame.WIN_SCORE) {
+            System.out.println("\nAI (O) wins!");
+        } else {
+            System.out.println("\nIt's a draw!");
+        }
+    }
+
+    /**
+     * Usage: MNKRunner [rows columns k] [milliseconds per AI move]
+     * The default game is Gomoku (15 15 5). Without a time the AI searches to a fixed depth.
+     */
+    public static void main(String[] args) {
+        int rows = 15;
+        int columns = 15;
+        int k = 5;
+        Duration timeBudget = null;
+        int next = 0;
+        if (args.length >= 3) {
+            rows = Integer.parseInt(args[0]);
+            columns = Integer.parseInt(args[1]);
+            k = Integer.parseInt(args[2]);
+            next = 3;
+        }
+        if (args.length > next) {
+            timeBudget = Duration.ofMillis(Long.parseLong(args[next]));
+        }
+        MNKRunner runner = new MNKRunner(new MNKGame(rows, columns, k), timeBudget);
+        runner.play();
+    }
+}
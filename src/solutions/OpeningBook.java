@@ -0,0 +1,136 @@
+package solutions;
+
+import problems.ConnectFour;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Map;
+import java.util.SortedMap;
+
+/**
+ * A Connect Four opening book: the best column for O (the AI) and the
+ * search score of every position up to some ply, precomputed by
+ * OpeningBookGenerator.
+ *
+ * The file is memory-mapped rather than read, so opening a book costs
+ * nothing on the heap and a lookup is a binary search over the mapped
+ * pages. Mirror images share one entry, stored under the smaller of the
+ * two position keys (see ConnectFour#positionKey).
+ *
+ * File layout (big-endian):
+ * - header: magic number, format version, number of entries (3 ints)
+ * - entries sorted by key, each a long holding the key in its low 56 bits
+ *   and the column in its high 8 bits, followed by the score as an int
+ */
+public class OpeningBook {
+    private static final int MAGIC = 0x43344F42;
+    private static final int VERSION = 1;
+    private static final int HEADER_BYTES = 12;
+    private static final int ENTRY_BYTES = 12;
+    private static final int COLUMN_SHIFT = 56;
+    private static final long KEY_MASK = (1L << COLUMN_SHIFT) - 1;
+
+    /**
+     * A book move: the column O should play and the score (for MAX) the search gave it.
+     */
+    public record Entry(int column, int score) {}
+
+    private final MappedByteBuffer entries;
+    private final int size;
+
+    private OpeningBook(MappedByteBuffer entries, int size) {
+        this.entries = entries;
+        this.size = size;
+    }
+
+    /**
+     * Maps a book file into memory.
+     *
+     * @throws IOException if the file cannot be read or is not an opening book
+     */
+    public static OpeningBook open(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            if (buffer.capacity() < HEADER_BYTES || buffer.getInt(0) != MAGIC) {
+                throw new IOException(file + " is not an opening book");
+            }
+            if (buffer.getInt(4) != VERSION) {
+                throw new IOException(file + " has unsupported book version " + buffer.getInt(4));
+            }
+            int size = buffer.getInt(8);
+            if (buffer.capacity() != HEADER_BYTES + (long) size * ENTRY_BYTES) {
+                throw new IOException(file + " is truncated");
+            }
+            // the mapping stays valid after the channel is closed
+            return new OpeningBook(buffer, size);
+        }
+    }
+
+    /**
+     * Looks up the current position, with O to move.
+     *
+     * @return the book move, or null if the position is not in the book
+     *         or not on the standard board
+     */
+    public Entry probe(ConnectFour game) {
+        if (!game.isStandardSize()) {
+            return null;
+        }
+        long key = game.positionKey();
+        long mirroredKey = game.mirroredPositionKey();
+        boolean mirrored = mirroredKey < key;
+        long target = mirrored ? mirroredKey : key;
+
+        int low = 0;
+        int high = size - 1;
+        while (low <= high) {
+            int middle = (low + high) >>> 1;
+            int offset = HEADER_BYTES + middle * ENTRY_BYTES;
+            long word = entries.getLong(offset);
+            long entryKey = word & KEY_MASK;
+            if (entryKey < target) {
+                low = middle + 1;
+            } else if (entryKey > target) {
+                high = middle - 1;
+            } else {
+                int column = (int) (word >>> COLUMN_SHIFT);
+                if (mirrored) {
+                    column = game.moveIdCount() - 1 - column;
+                }
+                return new Entry(column, entries.getInt(offset + 8));
+            }
+        }
+        return null;
+    }
+
+    /**
+     * @return the number of positions in the book
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Writes a book file.
+     *
+     * @param entries the book moves by canonical position key (the smaller
+     *                of a position's key and its mirrored key)
+     */
+    static void write(Path file, SortedMap<Long, Entry> entries) throws IOException {
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(file)))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeInt(entries.size());
+            for (Map.Entry<Long, Entry> e : entries.entrySet()) {
+                out.writeLong(e.getKey() | (long) e.getValue().column() << COLUMN_SHIFT);
+                out.writeInt(e.getValue().score());
+            }
+        }
+    }
+}
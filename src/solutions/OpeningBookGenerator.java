@@ -0,0 +1,90 @@
+package solutions;
+
+import core_algorithms.MinimaxPrune;
+import problems.ConnectFour;
+import problems.Square;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.SortedMap;
+import java.util.TreeMap;
+
+/**
+ * Builds a Connect Four opening book offline: enumerates every position
+ * with O to move up to a given ply, whichever player started, searches
+ * each one to a fixed depth and writes the best columns to an OpeningBook
+ * file. A position and its mirror image are searched only once.
+ *
+ * Usage: OpeningBookGenerator [max ply] [search depth] [book file]
+ */
+public class OpeningBookGenerator {
+
+    // Transposition table shared by all the searches
+    private static final long TABLE_BYTES = 256L << 20;
+    // Distinguishes O-to-move positions in the visited set, above every position key
+    private static final long O_TO_MOVE = 1L << 62;
+
+    private final ConnectFour game = new ConnectFour();
+    private final MinimaxPrune<Square> search = new MinimaxPrune<>(game, TABLE_BYTES);
+    private final int maxPly;
+    private final int depth;
+    private final Set<Long> visited = new HashSet<>();
+    private final SortedMap<Long, OpeningBook.Entry> book = new TreeMap<>();
+
+    public OpeningBookGenerator(int maxPly, int depth) {
+        this.maxPly = maxPly;
+        this.depth = depth;
+    }
+
+    /**
+     * Searches every position of the book.
+     *
+     * @return the book moves by canonical position key
+     */
+    public SortedMap<Long, OpeningBook.Entry> generate() {
+        visit(0, true);  // O (the AI) moves first, as in ConnectFourRunner
+        visit(0, false); // X moves first
+        return book;
+    }
+
+    private void visit(int ply, boolean oToMove) {
+        if (game.isTerminal()) {
+            return;
+        }
+        long key = Math.min(game.positionKey(), game.mirroredPositionKey());
+        if (!visited.add(oToMove ? key | O_TO_MOVE : key)) {
+            return; // a transposition or a mirror image of a position already visited
+        }
+        if (oToMove) {
+            Square move = search.minimaxSearch(depth);
+            int column = key == game.positionKey() ? move.column() : game.moveIdCount() - 1 - move.column();
+            book.put(key, new OpeningBook.Entry(column, search.getLastResult().score()));
+            if (book.size() % 100 == 0) {
+                System.out.printf("%d positions searched%n", book.size());
+            }
+        }
+        if (ply == maxPly) {
+            return;
+        }
+        int[] columns = new int[game.moveIdCount()];
+        int count = game.generateMoves(columns);
+        for (int i = 0; i < count; i++) {
+            game.execute(columns[i], !oToMove);
+            visit(ply + 1, !oToMove);
+            game.undo(columns[i], !oToMove);
+        }
+    }
+
+    public static void main(String[] args) throws IOException {
+        int maxPly = args.length > 0 ? Integer.parseInt(args[0]) : 4;
+        int depth = args.length > 1 ? Integer.parseInt(args[1]) : 12;
+        Path file = Path.of(args.length > 2 ? args[2] : "connect4.book");
+
+        long start = System.nanoTime();
+        SortedMap<Long, OpeningBook.Entry> book = new OpeningBookGenerator(maxPly, depth).generate();
+        OpeningBook.write(file, book);
+        System.out.printf("Wrote %d positions to %s in %.1f s%n", book.size(), file, (System.nanoTime() - start) / 1e9);
+    }
+}
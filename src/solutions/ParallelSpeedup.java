@@ -0,0 +1,72 @@
+package solutions;
+
+import core_algorithms.MinimaxPrune;
+import core_algorithms.ParallelMinimaxPrune;
+import problems.ConnectFour;
+import problems.Square;
+
+/**
+ * Measures how the parallel alpha-beta search scales with the number of threads.
+ *
+ * For a few fixed Connect Four positions, runs the serial search once and the
+ * parallel search with 1, 2, 4, ... up to N threads, checks that every run
+ * picks the same move, and prints the time and the speedup over one thread.
+ *
+ * Usage: ParallelSpeedup [depth] [max threads]
+ */
+public class ParallelSpeedup {
+
+    // Move sequences (columns, X moves first) leading to the measured positions, all with O to move
+    private static final String[] POSITIONS = {"3", "323", "33425", "3324156"};
+
+    public static void main(String[] args) {
+        int depth = args.length > 0 ? Integer.parseInt(args[0]) : 9;
+        int maxThreads = args.length > 1 ? Integer.parseInt(args[1]) : Runtime.getRuntime().availableProcessors();
+
+        System.out.printf("%-10s %8s %10s %8s%n", "position", "threads", "ms", "speedup");
+        for (String position : POSITIONS) {
+            ConnectFour game = playSequence(position);
+            Square expected = new MinimaxPrune<>(game, 0).minimaxSearch(depth);
+
+            long singleThreadNanos = 0;
+            for (int threads = 1; threads <= maxThreads; threads = nextThreadCount(threads, maxThreads)) {
+                try (ParallelMinimaxPrune<Square> search = new ParallelMinimaxPrune<>(game, threads)) {
+                    search.minimaxSearch(depth - 2); // warm up the JIT and the pool
+                    long start = System.nanoTime();
+                    Square move = search.minimaxSearch(depth);
+                    long elapsed = System.nanoTime() - start;
+                    if (!move.equals(expected)) {
+                        throw new IllegalStateException("Parallel search chose " + move + ", serial chose " + expected);
+                    }
+                    if (threads == 1) {
+                        singleThreadNanos = elapsed;
+                    }
+                    System.out.printf("%-10s %8d %10.1f %8.2f%n", position,
+                            threads, elapsed / 1e6, (double) singleThreadNanos / elapsed);
+                }
+            }
+        }
+    }
+
+    /**
+     * Plays a sequence of columns on a new board, alternating X and O.
+     */
+    static ConnectFour playSequence(String columns) {
+        ConnectFour game = new ConnectFour();
+        boolean isMax = true;
+        for (char c : columns.toCharArray()) {
+            int column = c - '0';
+            Square square = game.getAllRemainingMoves().stream()
+                    .filter(s -> s.column() == column)
+                    .findFirst()
+                    .orElseThrow(() -> new IllegalArgumentException("Column " + column + " is full"));
+            game.execute(square, isMax);
+            isMax = !isMax;
+        }
+        return game;
+    }
+
+    private static int nextThreadCount(int threads, int maxThreads) {
+        return threads < maxThreads && threads * 2 > maxThreads ? maxThreads : threads * 2;
+    }
+}
@@ -25,10 +25,13 @@ public class TicTacToeRunner extends MinimaxPrune<Square> {
     private Mark turn = Mark.X;
     private final TicTacToe game;
     private final int DEPTH_LIMIT = 50;
+    // Runs the searches on encoded moves when set; null to search with this MinimaxPrune
+    private IntMoveSearch<Square> intSearch;
 
     public TicTacToeRunner(TicTacToe game) {
         super(game);
         this.game = game;
+        setMoveOrdering(new KillerHistoryOrdering(game.moveIdCount()));
     }
 
     /**
@@ -44,7 +47,8 @@ public class TicTacToeRunner extends MinimaxPrune<Square> {
                 turn = Mark.O;
             }else{
                 System.out.println("AI's turn: ");
-                game.execute(minimaxSearch(DEPTH_LIMIT), false);
+                Square move = intSearch != null ? intSearch.minimaxSearch(DEPTH_LIMIT) : minimaxSearch(DEPTH_LIMIT);
+                game.execute(move, false);
                 turn = Mark.X;
             }
         }
@@ -52,6 +56,16 @@ public class TicTacToeRunner extends MinimaxPrune<Square> {
         announceWinner(game.utility());
     }
 
+    /**
+     * Makes the AI search with IntMinimaxPrune, on the encoded moves of the
+     * game, instead of MinimaxPrune.
+     */
+    public void useIntSearch() {
+        IntMinimaxPrune search = new IntMinimaxPrune(game);
+        search.setMoveOrdering(new KillerHistoryOrdering(game.moveIdCount()));
+        this.intSearch = new IntMoveSearch<>(search, game::toSquare);
+    }
+
     /**
      * Prompts the human player to enter a move via the console.
      * Re-prompts until a valid move is provided.
@@ -123,8 +137,16 @@ public class TicTacToeRunner extends MinimaxPrune<Square> {
         }
     }
 
+    /**
+     * Usage: TicTacToeRunner [--int]
+     * With --int the AI searches with IntMinimaxPrune instead of MinimaxPrune.
+     */
     public static void main(String[] args) {
         TicTacToeRunner runner = new TicTacToeRunner(new TicTacToe(BOARD_SIZE));
+        for (String arg : args) {
+            if (arg.equals("--int")) runner.useIntSearch();
+            else throw new IllegalArgumentException("Unknown argument: " + arg);
+        }
         runner.play();
     }
 }
@@ -0,0 +1,416 @@
+package solutions;
+
+import core_algorithms.Evaluation;
+import core_algorithms.KillerHistoryOrdering;
+import core_algorithms.MinimaxPrune;
+import core_algorithms.NegamaxPVS;
+import core_algorithms.SearchStats;
+import problems.ConnectFour;
+import problems.Game;
+import problems.Square;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.SplittableRandom;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Plays Connect Four engines against each other, to check that a change
+ * does not cost playing strength.
+ *
+ * Two engine configurations (A and B) play a match of many games. Every
+ * game starts from a random opening of a few moves; each opening is played
+ * twice, once with A as X and once with A as O, so that neither engine
+ * profits from a lucky opening. Every game runs on its own virtual thread,
+ * and a semaphore bounds how many are searching at once.
+ *
+ * Reports A's wins, draws and losses, the Elo difference between A and B
+ * with its 95% confidence interval, and the average time and nodes per
+ * move of each engine.
+ *
+ * An engine is described by comma-separated key:value settings:
+ * - engine:minimax or engine:pvs, the search (default minimax, i.e.
+ *   MinimaxPrune; pvs is NegamaxPVS, which only searches to a fixed depth
+ *   and takes none of the order, driver and eval settings)
+ * - depth:plies or time:ms per move (default depth:8)
+ * - order:none or order:killer (default none)
+ * - table:MB, the transposition table size (default 4)
+ * - driver:full, driver:aspiration or driver:mtdf, how the root is searched
+ *   (default full, see MinimaxPrune.Driver)
+ * - eval:heuristic, eval:none or eval:playout, how positions at the depth
+ *   limit are scored (default heuristic, see Eval and core_algorithms.Evaluation)
+ *
+ * Usage: Tournament [--a=engine] [--b=engine] [--games=n] [--opening=plies]
+ *                   [--parallel=games] [--seed=n]
+ */
+public class Tournament {
+
+    /**
+     * How an engine scores the positions at its depth limit.
+     */
+    public enum Eval {
+        // The threat-counting heuristic of ConnectFour#utility
+        HEURISTIC,
+        // Nothing: only wins and losses within the depth count
+        NONE,
+        // The outcomes of random games played to the end (see PlayoutEvaluation)
+        PLAYOUT;
+
+        static Eval parse(String name) {
+            return switch (name) {
+                case "heuristic" -> HEURISTIC;
+                case "none" -> NONE;
+                case "playout" -> PLAYOUT;
+                default -> throw new IllegalArgumentException("Unknown evaluation: " + name);
+            };
+        }
+    }
+
+    /**
+     * An engine configuration.
+     *
+     * @param spec          the settings it was parsed from, used as its name
+     * @param pvs           whether NegamaxPVS searches instead of MinimaxPrune
+     * @param depth         the search depth, used when budget is null
+     * @param budget        the time per move, or null to search to depth
+     * @param killerHistory whether moves are ordered by killer and history heuristics
+     * @param tableBytes    the memory budget of the transposition table
+     * @param driver        how the root of every search is searched
+     * @param eval          how the positions at the depth limit are scored
+     */
+    public record Engine(String spec, boolean pvs, int depth, Duration budget, boolean killerHistory, long tableBytes,
+                         MinimaxPrune.Driver driver, Eval eval) {
+
+        /**
+         * Parses settings like "depth:6,order:killer" (see the class comment).
+         */
+        public static Engine parse(String spec) {
+            boolean pvs = false;
+            int depth = 8;
+            Duration budget = null;
+            boolean killerHistory = false;
+            long tableBytes = 4L << 20;
+            MinimaxPrune.Driver driver = MinimaxPrune.Driver.FULL_WINDOW;
+            Eval eval = Eval.HEURISTIC;
+            for (String setting : spec.split(",")) {
+                String[] keyValue = setting.split(":", 2);
+                if (keyValue.length != 2) {
+                    throw new IllegalArgumentException("Expected key:value, got " + setting);
+                }
+                switch (keyValue[0]) {
+                    case "engine" -> pvs = switch (keyValue[1]) {
+                        case "minimax" -> false;
+                        case "pvs" -> true;
+                        default -> throw new IllegalArgumentException("Unknown engine: " + keyValue[1]);
+                    };
+                    case "depth" -> depth = Integer.parseInt(keyValue[1]);
+                    case "time" -> budget = Duration.ofMillis(Long.parseLong(keyValue[1]));
+                    case "order" -> killerHistory = switch (keyValue[1]) {
+                        case "none" -> false;
+                        case "killer" -> true;
+                        default -> throw new IllegalArgumentException("Unknown ordering: " + keyValue[1]);
+                    };
+                    case "table" -> tableBytes = Long.parseLong(keyValue[1]) << 20;
+                    case "driver" -> driver = MinimaxPrune.Driver.parse(keyValue[1]);
+                    case "eval" -> eval = Eval.parse(keyValue[1]);
+                    default -> throw new IllegalArgumentException("Unknown setting: " + keyValue[0]);
+                }
+            }
+            if (pvs && (budget != null || killerHistory || driver != MinimaxPrune.Driver.FULL_WINDOW
+                    || eval != Eval.HEURISTIC)) {
+                throw new IllegalArgumentException("engine:pvs takes only the depth and table settings: " + spec);
+            }
+            return new Engine(spec, pvs, depth, budget, killerHistory, tableBytes, driver, eval);
+        }
+
+        /**
+         * Creates the search of this engine for one game.
+         */
+        Player create(ConnectFour game) {
+            if (pvs) {
+                NegamaxPVS<Square> search = new NegamaxPVS<>(game, tableBytes);
+                return new Player() {
+                    @Override
+                    public Square move(boolean isMax) {
+                        return search.search(depth, isMax).pathOfMoves().get(0);
+                    }
+
+                    @Override
+                    public long nodes() {
+                        return search.getNodeCount();
+                    }
+                };
+            }
+            MinimaxPrune<Square> search = new MinimaxPrune<>(game, tableBytes);
+            search.setDriver(driver);
+            if (killerHistory) {
+                search.setMoveOrdering(new KillerHistoryOrdering(game.moveIdCount()));
+            }
+            switch (eval) {
+                case HEURISTIC -> { }
+                case NONE -> search.setEvaluation((position, isMax) -> 0);
+                case PLAYOUT -> search.setEvaluation(new PlayoutEvaluation(game));
+            }
+            return new Player() {
+                @Override
+                public Square move(boolean isMax) {
+                    return budget == null ? search.minimaxSearch(depth, isMax) : search.minimaxSearch(budget, isMax);
+                }
+
+                @Override
+                public long nodes() {
+                    return SearchStats.ENABLED ? search.getSearchStats().getNodes() : 0;
+                }
+            };
+        }
+    }
+
+    /**
+     * The search of one engine in one game.
+     */
+    interface Player {
+        Square move(boolean isMax);
+
+        /**
+         * @return the positions visited by the last move's search
+         */
+        long nodes();
+    }
+
+    /**
+     * Scores a position by the outcomes of random games played from it to
+     * the end: the share of them X wins minus the share O wins, scaled to
+     * +/-100, i.e. the value of one threat in ConnectFour#utility. Each
+     * evaluation is a few hundred moves, so engines using it search less
+     * deep in the same time.
+     */
+    static final class PlayoutEvaluation implements Evaluation<Square> {
+        private static final int PLAYOUTS = 16;
+
+        private final ConnectFour game;
+        private final SplittableRandom random = new SplittableRandom();
+        private final int[] moves;
+        // the moves of the current playout, to undo them
+        private final int[] played;
+
+        PlayoutEvaluation(ConnectFour game) {
+            this.game = game;
+            this.moves = new int[game.moveIdCount()];
+            this.played = new int[game.getRows() * game.getColumns()];
+        }
+
+        @Override
+        public int evaluate(Game<Square> position, boolean isMax) {
+            int balance = 0;
+            for (int i = 0; i < PLAYOUTS; i++) {
+                int count = 0;
+                boolean side = isMax;
+                while (!game.isTerminal()) {
+                    int move = moves[random.nextInt(game.generateMoves(moves))];
+                    game.execute(move, side);
+                    played[count++] = move;
+                    side = !side;
+                }
+                balance += Integer.signum(game.utility());
+                while (count > 0) {
+                    side = !side;
+                    game.undo(played[--count], side);
+                }
+            }
+            return 100 * balance / PLAYOUTS;
+        }
+    }
+
+    /**
+     * Per-engine totals, updated by all the games.
+     */
+    private static class Tally {
+        final LongAdder moves = new LongAdder();
+        final LongAdder nanos = new LongAdder();
+        final LongAdder nodes = new LongAdder();
+    }
+
+    private final Engine a;
+    private final Engine b;
+    private final int openingPlies;
+    private final long seed;
+    private final Tally tallyA = new Tally();
+    private final Tally tallyB = new Tally();
+    // Outcomes from A's point of view
+    private final AtomicInteger wins = new AtomicInteger();
+    private final AtomicInteger draws = new AtomicInteger();
+    private final AtomicInteger losses = new AtomicInteger();
+
+    public Tournament(Engine a, Engine b, int openingPlies, long seed) {
+        this.a = a;
+        this.b = b;
+        this.openingPlies = openingPlies;
+        this.seed = seed;
+    }
+
+    /**
+     * Plays the match: games / 2 openings, each with both color assignments.
+     *
+     * @param games    the number of games (rounded up to an even number)
+     * @param parallel the maximum number of games searching at the same time
+     */
+    public void play(int games, int parallel) throws InterruptedException {
+        Semaphore running = new Semaphore(parallel);
+        AtomicInteger finished = new AtomicInteger();
+        int openings = (games + 1) / 2;
+        List<Future<?>> results = new ArrayList<>();
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int i = 0; i < openings; i++) {
+                int[] opening = randomOpening(new Random(seed + i));
+                for (boolean aIsX : new boolean[] {true, false}) {
+                    results.add(executor.submit(() -> {
+                        running.acquire();
+                        try {
+                            playGame(opening, aIsX);
+                        } finally {
+                            running.release();
+                        }
+                        int done = finished.incrementAndGet();
+                        if (done % 100 == 0) {
+                            System.out.printf("%d games played: %s%n", done, summary());
+                        }
+                        return null;
+                    }));
+                }
+            }
+        }
+        for (Future<?> result : results) {
+            try {
+                result.get();
+            } catch (ExecutionException e) {
+                throw new IllegalStateException("A game failed", e.getCause());
+            }
+        }
+    }
+
+    /**
+     * Plays one game from the opening until it is over, and records the outcome.
+     */
+    private void playGame(int[] opening, boolean aIsX) {
+        ConnectFour game = new ConnectFour();
+        boolean isMax = true;
+        for (int column : opening) {
+            game.execute(column, isMax);
+            isMax = !isMax;
+        }
+        Player playerA = a.create(game);
+        Player playerB = b.create(game);
+        while (!game.isTerminal()) {
+            boolean aToMove = isMax == aIsX;
+            Player player = aToMove ? playerA : playerB;
+            Tally tally = aToMove ? tallyA : tallyB;
+            long start = System.nanoTime();
+            Square move = player.move(isMax);
+            tally.nanos.add(System.nanoTime() - start);
+            tally.moves.increment();
+            tally.nodes.add(player.nodes());
+            game.execute(move, isMax);
+            isMax = !isMax;
+        }
+
+        int utility = game.utility();
+        if (utility == 0) {
+            draws.incrementAndGet();
+        } else if ((utility > 0) == aIsX) {
+            wins.incrementAndGet();
+        } else {
+            losses.incrementAndGet();
+        }
+    }
+
+    /**
+     * Plays random moves that do not end the game.
+     *
+     * @return the columns of the opening, X first
+     */
+    private int[] randomOpening(Random random) {
+        while (true) {
+            ConnectFour game = new ConnectFour();
+            int[] opening = new int[openingPlies];
+            int[] moves = new int[game.moveIdCount()];
+            boolean isMax = true;
+            for (int ply = 0; ply < openingPlies && !game.isTerminal(); ply++) {
+                opening[ply] = moves[random.nextInt(game.generateMoves(moves))];
+                game.execute(opening[ply], isMax);
+                isMax = !isMax;
+            }
+            if (!game.isTerminal()) {
+                return opening;
+            }
+        }
+    }
+
+    /**
+     * @return A's wins, draws and losses, and the Elo difference with its 95% interval
+     */
+    public String summary() {
+        int w = wins.get();
+        int d = draws.get();
+        int l = losses.get();
+        int n = w + d + l;
+        if (n == 0) return "no games";
+        double score = (w + 0.5 * d) / n;
+        // standard deviation of the per-game score (1, 0.5 or 0) around its mean
+        double deviation = Math.sqrt((w * Math.pow(1 - score, 2) + d * Math.pow(0.5 - score, 2)
+                + l * Math.pow(score, 2)) / n);
+        double margin = 1.96 * deviation / Math.sqrt(n);
+        double elo = elo(score);
+        double errorBar = (elo(score + margin) - elo(score - margin)) / 2;
+        return String.format("+%d =%d -%d, score %.1f%%, Elo %+.1f +/- %.1f", w, d, l, 100 * score, elo, errorBar);
+    }
+
+    /**
+     * Converts an expected score (0 to 1) to an Elo difference; infinite at 0 and 1.
+     */
+    private static double elo(double score) {
+        if (score <= 0) return Double.NEGATIVE_INFINITY;
+        if (score >= 1) return Double.POSITIVE_INFINITY;
+        return -400 * Math.log10(1 / score - 1);
+    }
+
+    private static String perMove(Tally tally) {
+        long moves = Math.max(1, tally.moves.sum());
+        String time = String.format("%.1f ms/move", tally.nanos.sum() / 1e6 / moves);
+        return SearchStats.ENABLED ? time + String.format(", %d nodes/move", tally.nodes.sum() / moves) : time;
+    }
+
+    public static void main(String[] args) throws InterruptedException {
+        Engine a = Engine.parse("depth:6");
+        Engine b = Engine.parse("depth:4");
+        int games = 200;
+        int openingPlies = 4;
+        int parallel = Runtime.getRuntime().availableProcessors();
+        long seed = 1;
+        for (String arg : args) {
+            String value = arg.substring(arg.indexOf('=') + 1);
+            if (arg.startsWith("--a=")) a = Engine.parse(value);
+            else if (arg.startsWith("--b=")) b = Engine.parse(value);
+            else if (arg.startsWith("--games=")) games = Integer.parseInt(value);
+            else if (arg.startsWith("--opening=")) openingPlies = Integer.parseInt(value);
+            else if (arg.startsWith("--parallel=")) parallel = Integer.parseInt(value);
+            else if (arg.startsWith("--seed=")) seed = Long.parseLong(value);
+            else throw new IllegalArgumentException("Unknown argument: " + arg);
+        }
+
+        Tournament tournament = new Tournament(a, b, openingPlies, seed);
+        long start = System.nanoTime();
+        tournament.play(games, parallel);
+        System.out.printf("%nA (%s) vs B (%s), %.1f s%n", a.spec(), b.spec(), (System.nanoTime() - start) / 1e9);
+        System.out.println("A: " + tournament.summary());
+        System.out.println("A: " + perMove(tournament.tallyA));
+        System.out.println("B: " + perMove(tournament.tallyB));
+    }
+}